@@ -50,11 +50,16 @@ import com.thoughtworks.paranamer.generator.QdoxParanamerGenerator;
 public class ParanamerGeneratorTask extends Task {
     private String sourceDirectory;
     private String outputDirectory;
+    private int threads = 1;
 
     public void execute() throws BuildException {
         log("Generating parameter names from "+sourceDirectory+" to " + outputDirectory, Project.MSG_INFO);   
         try {
-            makeQdoxParanamerGenerator().processSourcePath(sourceDirectory, outputDirectory);
+            QdoxParanamerGenerator generator = makeQdoxParanamerGenerator();
+            generator.setThreads(threads);
+            generator.processSourcePath(sourceDirectory, outputDirectory);
+            log("Rewrote " + generator.getRewritten() + " classes, and left "
+                    + generator.getSkipped() + " that had nothing to add", Project.MSG_INFO);
         } catch (Exception e) {
             throw new BuildException("Failed to generate parameter names from "+sourceDirectory, e);
         }
@@ -68,6 +73,14 @@ public class ParanamerGeneratorTask extends Task {
         this.outputDirectory = outputDirectory;
     }
 
+    /**
+     * @param threads how many classes to enhance at once: 1 (the default) for one at a time, or 0
+     * for as many as there are processors, on the JVM's common ForkJoinPool
+     */
+    public void setThreads(int threads) {
+        this.threads = threads;
+    }
+
     protected QdoxParanamerGenerator makeQdoxParanamerGenerator() {
         return new QdoxParanamerGenerator();
     }
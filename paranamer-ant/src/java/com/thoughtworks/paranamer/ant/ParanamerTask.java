@@ -141,6 +141,25 @@ public class ParanamerTask extends Task {
      */
     private boolean excludesSet = false;
 
+    /**
+     * Whether to generate the compact v2 form of the parameter names data,
+     * rather than v1 lines. By default this is false.
+     */
+    private boolean compact = false;
+
+    /**
+     * Whether to write the names into the standard MethodParameters attribute
+     * of each method, rather than a __PARANAMER_DATA field. By default this is false.
+     */
+    private boolean methodParameters = false;
+
+    /**
+     * How many classes to enhance at once. By default this is 1, for
+     * one at a time. 0 is for as many as there are processors, on the
+     * JVM's common ForkJoinPool.
+     */
+    private int threads = 1;
+
     /**
      * The collection of nested file sets containing the files to be processed.
      */
@@ -172,23 +191,12 @@ public class ParanamerTask extends Task {
                     + includedFiles.length
                     + " files in "
                     + ds.getBasedir());
+            // the whole fileset is parsed first, so that its classes can be enhanced in parallel
+            JavaProjectBuilder builder = new JavaProjectBuilder();
             for (Object o : Arrays.asList(includedFiles)) {
                 String file = (String) o;
-                JavaProjectBuilder builder = new JavaProjectBuilder();
                 try {
                     builder.addSource(new File(ds.getBasedir(), file));
-                    // if the classdir is set then we source the classes
-                    // relative to classdir. otherwise we source the classes
-                    // relative to the base directory of the file set.
-                    if (classdirSet) {
-                        makeQdoxParanamerGenerator()
-                                .processClasses(builder.getClasses(),
-                                        classdir);
-                    } else {
-                        makeQdoxParanamerGenerator()
-                                .processClasses(builder.getClasses(),
-                                        ds.getBasedir().getPath());
-                    }
                 } catch (final IOException exception) {
                     throw new BuildException("Error processing: "
                             + file
@@ -196,6 +204,26 @@ public class ParanamerTask extends Task {
                             + exception.getMessage());
                 }
             }
+            QdoxParanamerGenerator generator = makeQdoxParanamerGenerator();
+            generator.setThreads(threads);
+            try {
+                // if the classdir is set then we source the classes
+                // relative to classdir. otherwise we source the classes
+                // relative to the base directory of the file set.
+                if (classdirSet) {
+                    generator.processClasses(builder.getClasses(), classdir);
+                } else {
+                    generator.processClasses(builder.getClasses(),
+                            ds.getBasedir().getPath());
+                }
+                log("Rewrote " + generator.getRewritten() + " classes, and left "
+                        + generator.getSkipped() + " that had nothing to add");
+            } catch (final IOException exception) {
+                throw new BuildException("Error processing: "
+                        + ds.getBasedir()
+                        + ". "
+                        + exception.getMessage());
+            }
         }
     }
 
@@ -209,6 +237,36 @@ public class ParanamerTask extends Task {
         this.filesets.add(fileset);
     }
 
+    /**
+     * Called automatically by ant when the compact attribute is present.
+     *
+     * @param compact
+     *  the content of the compact attribute.
+     */
+    public void setCompact(final boolean compact) {
+        this.compact = compact;
+    }
+
+    /**
+     * Called automatically by ant when the methodParameters attribute is present.
+     *
+     * @param methodParameters
+     *  the content of the methodParameters attribute.
+     */
+    public void setMethodParameters(final boolean methodParameters) {
+        this.methodParameters = methodParameters;
+    }
+
+    /**
+     * Called automatically by ant when the threads attribute is present.
+     *
+     * @param threads
+     *  the content of the threads attribute.
+     */
+    public void setThreads(final int threads) {
+        this.threads = threads;
+    }
+
     /**
      * Called automatically by ant when the srcdir attribute is present.
      *
@@ -263,6 +321,9 @@ public class ParanamerTask extends Task {
      *  paranamer data.
      */
     protected QdoxParanamerGenerator makeQdoxParanamerGenerator() {
-        return new QdoxParanamerGenerator();
+        if (methodParameters) {
+            return new QdoxParanamerGenerator.MethodParameters();
+        }
+        return compact ? new QdoxParanamerGenerator.Compact() : new QdoxParanamerGenerator();
     }
 }
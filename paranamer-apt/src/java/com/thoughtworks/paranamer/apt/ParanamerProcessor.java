@@ -0,0 +1,160 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.thoughtworks.paranamer.apt;
+
+import com.thoughtworks.paranamer.index.IndexWriter;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.ExecutableElement;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.tools.Diagnostic;
+import javax.tools.FileObject;
+import javax.tools.StandardLocation;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Annotation processor which takes the parameter names of constructors and methods from the
+ * source that javac has already parsed, and writes them to the <code>META-INF/paranamer/index.bin</code>
+ * resource that IndexParanamer reads. There is no second parse of the source, as there is with
+ * QdoxParanamerGenerator. It is found on the classpath (or processor path) by javac, so it needs
+ * no configuration.
+ * <p>
+ * The names of the classes in each round are taken in that round, and the index is written when
+ * the last round is over. There is one index for all the classes compiled, rather than an output
+ * per class, so the processor is aggregating and not isolating: as it takes every type (and not
+ * just annotated ones), Gradle runs it over all the sources of the source set whenever any one of
+ * them changes. Private constructors and methods, and those without parameters, are left out, as
+ * they are by QdoxParanamerGenerator.
+ * </p>
+ *
+ * @see IndexWriter
+ */
+@SupportedAnnotationTypes("*")
+public class ParanamerProcessor extends AbstractProcessor {
+
+    private final IndexWriter index = new IndexWriter();
+    private final List<Element> originatingElements = new ArrayList<Element>();
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (TypeElement type : ElementFilter.typesIn(roundEnv.getRootElements())) {
+            addType(type);
+        }
+        if (roundEnv.processingOver() && index.size() > 0) {
+            writeIndex();
+        }
+        // the annotations are not claimed, so other processors still see them
+        return false;
+    }
+
+    private void addType(TypeElement type) {
+        originatingElements.add(type);
+        String className = processingEnv.getElementUtils().getBinaryName(type).toString();
+        for (Element enclosed : type.getEnclosedElements()) {
+            if (enclosed instanceof TypeElement) {
+                addType((TypeElement) enclosed);
+            } else if (enclosed instanceof ExecutableElement) {
+                addExecutable(className, (ExecutableElement) enclosed);
+            }
+        }
+    }
+
+    private void addExecutable(String className, ExecutableElement executable) {
+        List<? extends VariableElement> parameters = executable.getParameters();
+        if (executable.getModifiers().contains(Modifier.PRIVATE) || parameters.isEmpty()) {
+            return;
+        }
+        String methodName = executable.getKind() == ElementKind.CONSTRUCTOR ? "<init>" : executable.getSimpleName().toString();
+        StringBuilder types = new StringBuilder();
+        StringBuilder names = new StringBuilder();
+        for (VariableElement parameter : parameters) {
+            if (names.length() > 0) {
+                types.append(',');
+                names.append(',');
+            }
+            types.append(getTypeName(parameter.asType()));
+            names.append(parameter.getSimpleName());
+        }
+        index.add(className, methodName, types.toString(), names.toString());
+    }
+
+    /**
+     * @param type the declared type of a parameter
+     * @return the name of its erasure as LegacyParanamer and IndexParanamer have it, which is
+     * the Class.getName() of a class, and of an array the name of its component type then "[]"
+     */
+    private String getTypeName(TypeMirror type) {
+        TypeMirror erased = processingEnv.getTypeUtils().erasure(type);
+        switch (erased.getKind()) {
+            case ARRAY:
+                return getTypeName(((ArrayType) erased).getComponentType()) + "[]";
+            case DECLARED:
+                Element element = ((DeclaredType) erased).asElement();
+                return processingEnv.getElementUtils().getBinaryName((TypeElement) element).toString();
+            default:
+                return erased.toString();
+        }
+    }
+
+    private void writeIndex() {
+        try {
+            FileObject resource = processingEnv.getFiler().createResource(StandardLocation.CLASS_OUTPUT, "",
+                    IndexWriter.INDEX_RESOURCE, originatingElements.toArray(new Element[originatingElements.size()]));
+            OutputStream os = resource.openOutputStream();
+            try {
+                index.writeTo(os);
+            } finally {
+                os.close();
+            }
+        } catch (IOException e) {
+            processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR,
+                    "could not write " + IndexWriter.INDEX_RESOURCE + ": " + e.getMessage());
+        }
+    }
+}
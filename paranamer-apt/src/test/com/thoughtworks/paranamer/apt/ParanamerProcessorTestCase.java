@@ -0,0 +1,110 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.thoughtworks.paranamer.apt;
+
+import com.thoughtworks.paranamer.IndexParanamer;
+import com.thoughtworks.paranamer.ParameterNamesNotFoundException;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class ParanamerProcessorTestCase {
+
+    private static final String SUBJECT = "package example;\n"
+            + "public class Subject<T> {\n"
+            + "    public Subject(int[] counts, String... more) {}\n"
+            + "    public void foo(T thing, java.util.List<String> list) {}\n"
+            + "    public void bar() {}\n"
+            + "    private void hidden(int secret) {}\n"
+            + "    public static class Inner {\n"
+            + "        public void baz(Inner other, long[][] grid) {}\n"
+            + "    }\n"
+            + "}\n";
+
+    @Test
+    public void namesAreIndexedAsTheSourceIsCompiled() throws Exception {
+        File output = compile("Subject", SUBJECT);
+        assertTrue(new File(output, IndexParanamer.INDEX_RESOURCE).exists());
+
+        ClassLoader loader = new URLClassLoader(new URL[] {output.toURI().toURL()}, null);
+        Class<?> subject = loader.loadClass("example.Subject");
+        Class<?> inner = loader.loadClass("example.Subject$Inner");
+        IndexParanamer paranamer = new IndexParanamer();
+
+        assertArrayEquals(new String[] {"counts", "more"}, paranamer.lookupParameterNames(subject.getConstructor(int[].class, String[].class)));
+        assertArrayEquals(new String[] {"thing", "list"}, paranamer.lookupParameterNames(subject.getMethod("foo", Object.class, List.class)));
+        assertArrayEquals(new String[] {"other", "grid"}, paranamer.lookupParameterNames(inner.getMethod("baz", inner, long[][].class)));
+        try {
+            paranamer.lookupParameterNames(subject.getDeclaredMethod("hidden", int.class));
+            fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            // private methods are left out
+        }
+    }
+
+    @Test
+    public void nothingIsWrittenWhenThereAreNoNamesToIndex() throws Exception {
+        File output = compile("Empty", "package example;\npublic interface Empty {\n    void run();\n}\n");
+        assertTrue(new File(output, "example/Empty.class").exists());
+        assertFalse(new File(output, IndexParanamer.INDEX_RESOURCE).exists());
+    }
+
+    private static File compile(String className, final String source) throws Exception {
+        File output = Files.createTempDirectory("paranamer-apt").toFile();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///example/" + className + ".java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return source;
+            }
+        };
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        JavaCompiler.CompilationTask task = compiler.getTask(null, null, null,
+                Arrays.asList("-d", output.getPath()), null, Collections.singletonList(file));
+        task.setProcessors(Collections.singletonList(new ParanamerProcessor()));
+        assertTrue(task.call());
+        return output;
+    }
+}
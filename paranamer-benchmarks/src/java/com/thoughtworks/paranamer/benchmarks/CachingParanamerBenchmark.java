@@ -0,0 +1,173 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.thoughtworks.paranamer.benchmarks;
+
+import com.thoughtworks.paranamer.CachingParanamer;
+import com.thoughtworks.paranamer.Paranamer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.lang.reflect.AccessibleObject;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares cache hits of the default <code>CachingParanamer</code> with those of
+ * <code>CachingParanamer.WithoutWeakReferences</code> and
+ * <code>CachingParanamer.WithClassValues</code>, from 1 to 128 threads.
+ *
+ * Build it with <code>mvn -Pbenchmarks package</code>, then run
+ * <code>java -jar paranamer-benchmarks/target/benchmarks.jar</code>. Thread counts given as
+ * arguments replace the default 1, 2, 4 .. 128.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CachingParanamerBenchmark {
+
+    static final int[] THREADS = {1, 2, 4, 8, 16, 32, 64, 128};
+
+    @Param({"default", "withoutWeakReferences", "withClassValues"})
+    public String variant;
+
+    private Paranamer paranamer;
+    private AccessibleObject[] members;
+
+    @Setup
+    public void setUp() {
+        if (variant.equals("withoutWeakReferences")) {
+            paranamer = new CachingParanamer.WithoutWeakReferences();
+        } else if (variant.equals("withClassValues")) {
+            paranamer = new CachingParanamer.WithClassValues();
+        } else {
+            paranamer = new CachingParanamer();
+        }
+        List<AccessibleObject> found = new ArrayList<AccessibleObject>();
+        for (Class<?> type : new Class<?>[] {Order.class, Customer.class}) {
+            found.addAll(Arrays.asList(type.getDeclaredConstructors()));
+            found.addAll(Arrays.asList(type.getDeclaredMethods()));
+        }
+        members = found.toArray(new AccessibleObject[0]);
+        for (AccessibleObject member : members) {
+            paranamer.lookupParameterNames(member);
+        }
+    }
+
+    /**
+     * Where each thread is in the members, so that threads don't share a counter.
+     */
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Benchmark
+    public String[] lookup(Cursor cursor) {
+        if (cursor.next == members.length) {
+            cursor.next = 0;
+        }
+        return paranamer.lookupParameterNames(members[cursor.next++]);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        int[] threads = THREADS;
+        if (args.length > 0) {
+            threads = new int[args.length];
+            for (int i = 0; i < args.length; i++) {
+                threads[i] = Integer.parseInt(args[i]);
+            }
+        }
+        Map<Integer, Map<String, Double>> scores = new TreeMap<Integer, Map<String, Double>>();
+        for (int count : threads) {
+            Map<String, Double> scoresOfCount = new TreeMap<String, Double>();
+            for (RunResult result : new Runner(new OptionsBuilder()
+                    .include(CachingParanamerBenchmark.class.getName() + ".lookup")
+                    .threads(count)
+                    .build()).run()) {
+                scoresOfCount.put(result.getParams().getParam("variant"), result.getPrimaryResult().getScore());
+            }
+            scores.put(count, scoresOfCount);
+        }
+
+        System.out.println();
+        System.out.println("lookups/us by threads:");
+        for (Map.Entry<Integer, Map<String, Double>> entry : scores.entrySet()) {
+            StringBuilder line = new StringBuilder(String.format("%4d", entry.getKey()));
+            for (Map.Entry<String, Double> score : entry.getValue().entrySet()) {
+                line.append(String.format("  %s %.1f", score.getKey(), score.getValue()));
+            }
+            System.out.println(line);
+        }
+    }
+
+    public static class Order {
+        public Order(Customer customer, String reference) {
+        }
+
+        public void addLine(String sku, int quantity, long priceInCents) {
+        }
+
+        public void ship(String carrier, String trackingNumber) {
+        }
+    }
+
+    public static class Customer {
+        public Customer(String name, String email) {
+        }
+
+        public void moveTo(String street, String city, String postcode) {
+        }
+
+        public Order order(String reference) {
+            return new Order(this, reference);
+        }
+    }
+}
@@ -3,6 +3,8 @@ package com.thoughtworks.paranamer;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Parameter;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * More recent Java versions have a means to access parameter names via reflection
@@ -25,16 +27,44 @@ public class DefaultParanamer implements Paranamer {
         } catch (ClassCastException e) {
             return EMPTY_NAMES; // should never happen unless someone passed a Field in.
         }
-        String[] names = new String[methodOrConstructorExecutable.getParameters().length];
-        Parameter[] x = methodOrConstructorExecutable.getParameters();
+        String[] names = namesOf(methodOrConstructorExecutable);
+        if (names == null) {
+            if (throwExceptionIfMissing) {
+                throw new ParameterNamesNotFoundException("Java9+ you need to compile with '-parameters' switch");
+            } else {
+                return EMPTY_NAMES;
+            }
+        }
+        return names;
+    }
+
+    @Override
+    public Map<AccessibleObject, String[]> lookupAllParameterNames(Class<?> declaringClass) {
+        Map<AccessibleObject, String[]> allNames = new HashMap<AccessibleObject, String[]>();
+        for (Executable[] executables : new Executable[][] {declaringClass.getDeclaredConstructors(), declaringClass.getDeclaredMethods()}) {
+            for (Executable executable : executables) {
+                String[] names = namesOf(executable);
+                if (names != null) {
+                    allNames.put(executable, names);
+                }
+            }
+        }
+        return allNames;
+    }
+
+    /**
+     * @return the names, or null if the class was not compiled with '-parameters'
+     */
+    private static String[] namesOf(Executable executable) {
+        Parameter[] x = executable.getParameters();
+        if (x.length == 0) {
+            return EMPTY_NAMES;
+        }
+        String[] names = new String[x.length];
         for (int i = 0; i < x.length; i++) {
             names[i] = x[i].getName();
             if (names[i].matches("^arg\\d+$")) {
-                if (throwExceptionIfMissing) {
-                    throw new ParameterNamesNotFoundException("Java9+ you need to compile with '-parameters' switch");
-                } else {
-                    return EMPTY_NAMES;
-                }
+                return null;
             }
         }
         return names;
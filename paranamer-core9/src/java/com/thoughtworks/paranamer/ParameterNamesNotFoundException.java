@@ -52,6 +52,15 @@ public class ParameterNamesNotFoundException extends RuntimeException {
         super(message);
     }
 
+    /**
+     * For exceptions that are made once and thrown many times, which need no stack trace.
+     * @param message the message
+     * @param writableStackTrace false for no stack trace (or suppressed exceptions)
+     */
+    protected ParameterNamesNotFoundException(String message, boolean writableStackTrace) {
+        super(message, null, false, writableStackTrace);
+    }
+
 
     public Throwable getCause() {
         return cause;
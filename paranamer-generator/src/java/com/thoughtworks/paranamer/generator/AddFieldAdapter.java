@@ -16,7 +16,7 @@ public class AddFieldAdapter extends ClassVisitor {
     private boolean isFieldPresent;
 
     public AddFieldAdapter(ClassVisitor cv, int fAcc, String fName, String fDesc, Object fValue) {
-        super(org.objectweb.asm.Opcodes.ASM5, cv);
+        super(org.objectweb.asm.Opcodes.ASM9, cv);
         this.fAcc = fAcc;
         this.fName = fName;
         this.fDesc = fDesc;
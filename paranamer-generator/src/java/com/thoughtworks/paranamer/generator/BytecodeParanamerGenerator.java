@@ -0,0 +1,506 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.thoughtworks.paranamer.generator;
+
+import com.thoughtworks.paranamer.index.IndexWriter;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.Label;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+/**
+ * Implementation of ParanamerGenerator which reads compiled classes rather than Java source. The names
+ * are taken from the MethodParameters attribute of each method, if it was compiled with
+ * <code>-parameters</code>, or else from its LocalVariableTable, if it was compiled with debug info.
+ * Methods with neither are left out, as are private, synthetic and bridge methods, and those without parameters.
+ * <p>
+ * The "source path" is a list of directories of classes and jars, separated by the path separator, so
+ * it can run as a step after compilation over <code>target/classes</code>, and index jars that there
+ * is no source for. Classes are read and enhanced in parallel, in a fork-join pool.
+ * </p>
+ */
+public class BytecodeParanamerGenerator implements ParanamerGenerator {
+
+    private static final int CLASSES_PER_TASK = 32;
+
+    private final ForkJoinPool pool;
+    private int rewritten;
+    private int skipped;
+
+    public BytecodeParanamerGenerator() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    public BytecodeParanamerGenerator(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Adds <code>__PARANAMER_DATA</code> to each class that has names, in the output path. A class
+     * read from a directory other than the output path is written there first. Jars are not enhanced,
+     * as that would copy their classes into the output path; index them with {@link #writeIndex} instead.
+     * Each class is read, named and enhanced by the same fork-join task, so its bytes are only held
+     * while it is.
+     * @param classPath the directories of classes
+     * @param outputPath the directory of the classes to enhance
+     * @throws IOException if a class could not be read or written, or the class path has a jar in it
+     */
+    public void processSourcePath(String classPath, String outputPath) throws IOException {
+        List<ClassFile> classFiles = new ArrayList<ClassFile>();
+        for (String path : classPath.split(File.pathSeparator)) {
+            File file = new File(path);
+            if (file.isDirectory()) {
+                addClassFiles(file, "", classFiles);
+            } else if (file.isFile()) {
+                throw new IOException("The classes of " + file + " cannot be enhanced, as it is not a directory (jars can be indexed instead)");
+            }
+        }
+        Enhancer enhancer = makeEnhancer();
+        try {
+            pool.invoke(new EnhanceClasses(enhancer, classFiles, outputPath, 0, classFiles.size()));
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        } finally {
+            rewritten += enhancer.getRewritten();
+            skipped += enhancer.getSkipped();
+        }
+    }
+
+    private void enhance(Enhancer enhancer, ClassFile read, String outputPath) throws IOException {
+        byte[] bytes = read.read();
+        ClassNames classNames = ClassNames.read(bytes);
+        if (classNames.methods.isEmpty()) {
+            return;
+        }
+        File classFile = new File(outputPath, classNames.entryName);
+        boolean copy = !classFile.exists();
+        if (copy) {
+            classFile.getParentFile().mkdirs();
+        } else if (!Files.isSameFile(classFile.toPath(), read.file.toPath())) {
+            bytes = Files.readAllBytes(classFile.toPath());
+        }
+        // a class that is not in the output path yet is written once, enhanced or else as it was
+        if (!enhancer.enhance(classFile, bytes, makeParameterData(classNames.getLines())) && copy) {
+            Enhancer.write(classFile, bytes);
+        }
+    }
+
+    /**
+     * @return how many classes have been written, over all the calls to this generator
+     */
+    public int getRewritten() {
+        return rewritten;
+    }
+
+    /**
+     * @return how many classes have been left as they were, as they had nothing to add
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * Writes the names of all the classes in the class path to one <code>META-INF/paranamer/index.bin</code>
+     * in the output path, for IndexParanamer.
+     * @param classPath the directories and jars of classes
+     * @param outputPath the directory the index goes below
+     * @throws IOException if a class could not be read, or the index written
+     * @see IndexWriter
+     */
+    public void writeIndex(String classPath, String outputPath) throws IOException {
+        IndexWriter writer = new IndexWriter();
+        for (ClassNames classNames : readClasses(classPath)) {
+            for (String[] method : classNames.methods) {
+                writer.add(classNames.className, method[0], method[1], method[2]);
+            }
+        }
+        File index = new File(outputPath, IndexWriter.INDEX_RESOURCE);
+        index.getParentFile().mkdirs();
+        FileOutputStream os = new FileOutputStream(index);
+        try {
+            writer.writeTo(os);
+        } finally {
+            os.close();
+        }
+    }
+
+    /**
+     * Writes a subclass of com.thoughtworks.paranamer.GeneratedParanamer, with the names of all the
+     * classes in the class path compiled in, to the output path. It is registered in
+     * <code>META-INF/services/com.thoughtworks.paranamer.Paranamer</code> there, for ServiceLoaderParanamer.
+     * @param classPath the directories and jars of classes
+     * @param outputPath the directory of the compiled classes
+     * @param className the name of the class to write, like com.example.ExampleParanamer
+     * @throws IOException if a class could not be read, or the class written
+     * @see QdoxParanamerGenerator#writeParanamerClass(String, String, String)
+     */
+    public void writeParanamerClass(String classPath, String outputPath, String className) throws IOException {
+        List<ClassNames> classes = readClasses(classPath);
+        // in the same order whichever order the directories list them in
+        Collections.sort(classes, new Comparator<ClassNames>() {
+            public int compare(ClassNames o1, ClassNames o2) {
+                return o1.className.compareTo(o2.className);
+            }
+        });
+        List<String[]> entries = new ArrayList<String[]>();
+        for (ClassNames classNames : classes) {
+            for (String[] method : classNames.methods) {
+                entries.add(new String[] {classNames.className, method[0], method[1], method[2]});
+            }
+        }
+        ParanamerClassGenerator.write(outputPath, className, entries);
+    }
+
+    /**
+     * @param lines v1 data, a line of "methodName paramTypes paramNames" for each method
+     * @return the <code>__PARANAMER_DATA</code> for a class
+     */
+    protected CharSequence makeParameterData(CharSequence lines) {
+        return lines;
+    }
+
+    public Enhancer makeEnhancer() {
+        return new Enhancer();
+    }
+
+    private List<ClassNames> readClasses(String classPath) throws IOException {
+        List<JarFile> jars = new ArrayList<JarFile>();
+        try {
+            List<ClassFile> classFiles = new ArrayList<ClassFile>();
+            for (String path : classPath.split(File.pathSeparator)) {
+                File file = new File(path);
+                if (file.isDirectory()) {
+                    addClassFiles(file, "", classFiles);
+                } else if (file.isFile()) {
+                    JarFile jar = new JarFile(file);
+                    jars.add(jar);
+                    Enumeration<JarEntry> entries = jar.entries();
+                    while (entries.hasMoreElements()) {
+                        JarEntry entry = entries.nextElement();
+                        if (isClass(entry.getName())) {
+                            classFiles.add(new ClassFile(jar, entry, null));
+                        }
+                    }
+                }
+            }
+            try {
+                return pool.invoke(new ReadClasses(classFiles, 0, classFiles.size()));
+            } catch (UncheckedIOException e) {
+                throw e.getCause();
+            }
+        } finally {
+            for (JarFile jar : jars) {
+                jar.close();
+            }
+        }
+    }
+
+    private static void addClassFiles(File dir, String prefix, List<ClassFile> classFiles) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                addClassFiles(file, prefix + file.getName() + "/", classFiles);
+            } else if (isClass(prefix + file.getName())) {
+                classFiles.add(new ClassFile(null, null, file));
+            }
+        }
+    }
+
+    private static boolean isClass(String entryName) {
+        return entryName.endsWith(".class") && !entryName.startsWith("META-INF/")
+                && !entryName.endsWith("module-info.class");
+    }
+
+    /**
+     * A class in a jar, or in a directory.
+     */
+    private static final class ClassFile {
+        private final JarFile jar;
+        private final JarEntry entry;
+        private final File file;
+
+        private ClassFile(JarFile jar, JarEntry entry, File file) {
+            this.jar = jar;
+            this.entry = entry;
+            this.file = file;
+        }
+
+        private byte[] read() throws IOException {
+            InputStream is = jar != null ? jar.getInputStream(entry) : new FileInputStream(file);
+            try {
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = is.read(buffer)) != -1) {
+                    bytes.write(buffer, 0, read);
+                }
+                return bytes.toByteArray();
+            } finally {
+                is.close();
+            }
+        }
+    }
+
+    /**
+     * Reads a range of the classes, splitting it in two while it is big enough to be worth it.
+     */
+    private static final class ReadClasses extends RecursiveTask<List<ClassNames>> {
+        private final List<ClassFile> classFiles;
+        private final int from;
+        private final int to;
+
+        private ReadClasses(List<ClassFile> classFiles, int from, int to) {
+            this.classFiles = classFiles;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected List<ClassNames> compute() {
+            if (to - from > CLASSES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                ReadClasses second = new ReadClasses(classFiles, middle, to);
+                second.fork();
+                List<ClassNames> read = new ReadClasses(classFiles, from, middle).compute();
+                read.addAll(second.join());
+                return read;
+            }
+            List<ClassNames> read = new ArrayList<ClassNames>(to - from);
+            for (int i = from; i < to; i++) {
+                try {
+                    read.add(ClassNames.read(classFiles.get(i).read()));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+            return read;
+        }
+    }
+
+    /**
+     * Enhances a range of the classes, splitting it in two while it is big enough to be worth it.
+     */
+    private final class EnhanceClasses extends RecursiveAction {
+        private final Enhancer enhancer;
+        private final List<ClassFile> classFiles;
+        private final String outputPath;
+        private final int from;
+        private final int to;
+
+        private EnhanceClasses(Enhancer enhancer, List<ClassFile> classFiles, String outputPath, int from, int to) {
+            this.enhancer = enhancer;
+            this.classFiles = classFiles;
+            this.outputPath = outputPath;
+            this.from = from;
+            this.to = to;
+        }
+
+        protected void compute() {
+            if (to - from > CLASSES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new EnhanceClasses(enhancer, classFiles, outputPath, from, middle),
+                        new EnhanceClasses(enhancer, classFiles, outputPath, middle, to));
+                return;
+            }
+            for (int i = from; i < to; i++) {
+                try {
+                    enhance(enhancer, classFiles.get(i), outputPath);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * The names of the methods of one class, as {methodName, paramTypes, paramNames}, constructors
+     * first and then methods by name, as QdoxParanamerGenerator has them.
+     */
+    static final class ClassNames {
+        final String className;
+        final String entryName;
+        final List<String[]> methods = new ArrayList<String[]>();
+
+        private ClassNames(String internalName) {
+            this.className = internalName.replace('/', '.');
+            this.entryName = internalName + ".class";
+        }
+
+        CharSequence getLines() {
+            StringBuilder sb = new StringBuilder();
+            for (String[] method : methods) {
+                sb.append(method[0]).append(' ').append(method[1]).append(' ').append(method[2]).append(" \n");
+            }
+            return sb;
+        }
+
+        static ClassNames read(byte[] bytes) {
+            ClassReader reader = new ClassReader(bytes);
+            final ClassNames classNames = new ClassNames(reader.getClassName());
+            reader.accept(new ClassVisitor(Opcodes.ASM9) {
+                public MethodVisitor visitMethod(int access, final String name, final String desc, String signature, String[] exceptions) {
+                    final Type[] types = Type.getArgumentTypes(desc);
+                    if ((access & (Opcodes.ACC_PRIVATE | Opcodes.ACC_SYNTHETIC | Opcodes.ACC_BRIDGE)) != 0
+                            || types.length == 0 || name.equals("<clinit>")) {
+                        return null;
+                    }
+                    final String[] names = new String[types.length];
+                    final int[] slots = new int[types.length];
+                    int slot = (access & Opcodes.ACC_STATIC) != 0 ? 0 : 1;
+                    for (int i = 0; i < types.length; i++) {
+                        slots[i] = slot;
+                        slot += types[i].getSize();
+                    }
+                    return new MethodVisitor(Opcodes.ASM9) {
+                        private boolean fromMethodParameters;
+                        private int parameter;
+                        private Label first;
+
+                        public void visitParameter(String parameterName, int parameterAccess) {
+                            fromMethodParameters = true;
+                            if (parameter < names.length) {
+                                names[parameter++] = parameterName;
+                            }
+                        }
+
+                        public void visitLabel(Label label) {
+                            // labels are visited in the order of their offsets
+                            if (first == null) {
+                                first = label;
+                            }
+                        }
+
+                        public void visitLocalVariable(String localName, String localDesc, String localSignature, Label start, Label end, int index) {
+                            if (fromMethodParameters) {
+                                return;
+                            }
+                            for (int i = 0; i < slots.length; i++) {
+                                // a slot may be reused for other locals later on, but a parameter's starts at the start
+                                if (slots[i] == index && (names[i] == null || start == first)) {
+                                    names[i] = localName;
+                                }
+                            }
+                        }
+
+                        public void visitEnd() {
+                            StringBuilder typeNames = new StringBuilder();
+                            StringBuilder parameterNames = new StringBuilder();
+                            for (int i = 0; i < names.length; i++) {
+                                if (names[i] == null) {
+                                    return;
+                                }
+                                if (i > 0) {
+                                    typeNames.append(',');
+                                    parameterNames.append(',');
+                                }
+                                typeNames.append(types[i].getClassName());
+                                parameterNames.append(names[i]);
+                            }
+                            classNames.methods.add(new String[] {name, typeNames.toString(), parameterNames.toString()});
+                        }
+                    };
+                }
+            }, ClassReader.SKIP_FRAMES);
+            Collections.sort(classNames.methods, new Comparator<String[]>() {
+                public int compare(String[] o1, String[] o2) {
+                    boolean init1 = o1[0].equals("<init>");
+                    boolean init2 = o2[0].equals("<init>");
+                    if (init1 != init2) {
+                        return init1 ? -1 : 1;
+                    }
+                    return o1[0].compareTo(o2[0]);
+                }
+            });
+            return classNames;
+        }
+    }
+
+    /**
+     * Generates the compact v2 form of <code>__PARANAMER_DATA</code>.
+     * @see QdoxParanamerGenerator.Compact
+     */
+    public static class Compact extends BytecodeParanamerGenerator {
+
+        public Compact() {
+        }
+
+        public Compact(ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        protected CharSequence makeParameterData(CharSequence lines) {
+            return QdoxParanamerGenerator.Compact.encode(lines);
+        }
+    }
+
+    /**
+     * Writes the names into the MethodParameters attribute of each method, rather than a
+     * <code>__PARANAMER_DATA</code> field, for classes compiled with debug info but not <code>-parameters</code>.
+     * @see Enhancer.MethodParameters
+     */
+    public static class MethodParameters extends BytecodeParanamerGenerator {
+
+        public MethodParameters() {
+        }
+
+        public MethodParameters(ForkJoinPool pool) {
+            super(pool);
+        }
+
+        @Override
+        public Enhancer makeEnhancer() {
+            return new Enhancer.MethodParameters();
+        }
+    }
+}
@@ -30,14 +30,29 @@
 package com.thoughtworks.paranamer.generator;
 
 import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
 import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.FieldVisitor;
+import org.objectweb.asm.MethodVisitor;
 import org.objectweb.asm.Opcodes;
+import org.objectweb.asm.Type;
 
 import java.io.File;
-import java.io.FileInputStream;
-import java.io.FileOutputStream;
 import java.io.IOException;
-import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * A bytecode enhancer which adds a new static variable to some specific class.
@@ -46,34 +61,284 @@ import java.io.InputStream;
  */
 public class Enhancer implements Opcodes {
 
+	private static final int MAX_CONSTANT_BYTES = 65535;
+
+	private final AtomicInteger rewritten = new AtomicInteger();
+	private final AtomicInteger skipped = new AtomicInteger();
+
+	/**
+	 * Enhances the class file, if there is anything to change. If not, it is not written at all,
+	 * so that its timestamp is left alone.
+	 */
 	public void enhance(File classFile, CharSequence parameterNameData)
 			throws IOException {
 
-		byte[] classBytecode = addExtraStaticField(classFile, parameterNameData);
-		FileOutputStream os = new FileOutputStream(classFile);
-		os.write(classBytecode);
-		os.close();
+		enhance(classFile, Files.readAllBytes(classFile.toPath()), parameterNameData);
+	}
+
+	/**
+	 * Like {@link #enhance(File, CharSequence)}, for a class that has been read already.
+	 * @param classFile where the class is written, if there is anything to add
+	 * @param classBytecode the class as it is
+	 * @param parameterNameData the data for it
+	 * @return whether the class was written
+	 * @throws IOException if the class could not be written
+	 */
+	public boolean enhance(File classFile, byte[] classBytecode, CharSequence parameterNameData)
+			throws IOException {
+
+		byte[] enhanced = enhance(classBytecode, parameterNameData);
+		if (enhanced == null) {
+			skipped.incrementAndGet();
+			return false;
+		}
+		write(classFile, enhanced);
+		rewritten.incrementAndGet();
+		return true;
+	}
+
+	/**
+	 * Adds the data to the class, unless it has a <code>__PARANAMER_DATA</code> field already.
+	 * That is the case when it was enhanced before, and when it has data of its own, which is kept.
+	 * Either way, finding the field is all it takes to know, without the class being rewritten.
+	 * @param classBytecode the class as it is
+	 * @param parameterNameData the data for it
+	 * @return the enhanced class, or null if there is nothing to change
+	 */
+	protected byte[] enhance(byte[] classBytecode, CharSequence parameterNameData) {
+		ClassReader reader = new ClassReader(classBytecode);
+		if (hasField(reader, "__PARANAMER_DATA")) {
+			return null;
+		}
+		return addExtraStaticField(reader, parameterNameData);
 	}
 
-	private byte[] addExtraStaticField(File classFile,
-			final CharSequence parameterNameData) throws IOException {
+	/**
+	 * @return how many classes this enhancer has written
+	 */
+	public int getRewritten() {
+		return rewritten.get();
+	}
+
+	/**
+	 * @return how many classes this enhancer has left as they were, as there was nothing to add
+	 */
+	public int getSkipped() {
+		return skipped.get();
+	}
+
+	/**
+	 * Enhances many classes at once.
+	 * @param classFiles the classes to enhance
+	 * @param parameterNameData the data for each of them, in the same order
+	 * @param pool where to enhance them, or null for one at a time in the calling thread
+	 * @throws IOException if a class could not be read or written
+	 */
+	public void enhance(List<File> classFiles, List<? extends CharSequence> parameterNameData, ForkJoinPool pool)
+			throws IOException {
+		if (pool == null) {
+			for (int i = 0; i < classFiles.size(); i++) {
+				enhance(classFiles.get(i), parameterNameData.get(i));
+			}
+			return;
+		}
+		try {
+			pool.invoke(new EnhanceClasses(this, classFiles, parameterNameData, 0, classFiles.size()));
+		} catch (UncheckedIOException e) {
+			throw e.getCause();
+		}
+	}
+
+	/**
+	 * Writes to a temporary file beside the class, then moves it over the class, so that nothing
+	 * ever sees a class half written.
+	 */
+	static void write(File classFile, byte[] classBytecode) throws IOException {
+		Path target = classFile.toPath();
+		Path temp = Files.createTempFile(target.toAbsolutePath().getParent(), classFile.getName(), ".tmp");
+		try {
+			Files.write(temp, classBytecode);
+			try {
+				Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temp);
+		}
+	}
 
-		InputStream inputStream = new FileInputStream(classFile);
-		ClassReader reader = new ClassReader(inputStream);
+	private byte[] addExtraStaticField(ClassReader reader,
+			final CharSequence parameterNameData) {
 
 		ClassWriter writer = new ClassWriter(reader, 0);
 		// TODO fix problem with inner classes, two classes in one classFile and
 		// so on...
 		// TODO doc typo on page 21: recommended
 
-		AddFieldAdapter adapter = new AddFieldAdapter(writer, ACC_PUBLIC
-				+ ACC_FINAL + ACC_STATIC, "__PARANAMER_DATA",
-				"Ljava/lang/String;", parameterNameData.toString());
+		List<String> constants = splitIntoConstants(parameterNameData.toString());
+		ClassVisitor visitor = writer;
+		for (int i = constants.size() - 1; i >= 0; i--) {
+			visitor = new AddFieldAdapter(visitor, ACC_PUBLIC
+					+ ACC_FINAL + ACC_STATIC, i == 0 ? "__PARANAMER_DATA" : "__PARANAMER_DATA_" + i,
+					"Ljava/lang/String;", constants.get(i));
+		}
 
-		reader.accept(adapter, 0);
+		reader.accept(visitor, 0);
 
-		inputStream.close();
 		return writer.toByteArray();
 	}
 
+	/**
+	 * A String constant in a class file is at most 65535 bytes of modified UTF-8, so larger
+	 * data goes in __PARANAMER_DATA, then __PARANAMER_DATA_1, __PARANAMER_DATA_2 and so on,
+	 * which readers join back together.
+	 */
+	static List<String> splitIntoConstants(String data) {
+		List<String> constants = new ArrayList<String>();
+		int start = 0;
+		int bytes = 0;
+		for (int i = 0; i < data.length(); i++) {
+			char c = data.charAt(i);
+			int size = c >= 0x0001 && c <= 0x007F ? 1 : c <= 0x07FF ? 2 : 3;
+			if (bytes + size > MAX_CONSTANT_BYTES) {
+				// a surrogate pair is kept together
+				int at = Character.isLowSurrogate(c) && Character.isHighSurrogate(data.charAt(i - 1)) ? i - 1 : i;
+				constants.add(data.substring(start, at));
+				bytes = at < i ? 3 : 0;
+				start = at;
+			}
+			bytes += size;
+		}
+		constants.add(data.substring(start));
+		return constants;
+	}
+
+	private static boolean hasField(ClassReader reader, final String fieldName) {
+		final boolean[] found = new boolean[1];
+		reader.accept(new ClassVisitor(ASM9) {
+			public FieldVisitor visitField(int access, String name, String desc, String signature, Object value) {
+				if (name.equals(fieldName)) {
+					found[0] = true;
+				}
+				return null;
+			}
+		}, ClassReader.SKIP_CODE | ClassReader.SKIP_DEBUG | ClassReader.SKIP_FRAMES);
+		return found[0];
+	}
+
+	/**
+	 * Enhances a range of the classes, splitting it in two while there is more than one.
+	 */
+	private static final class EnhanceClasses extends RecursiveAction {
+		private final Enhancer enhancer;
+		private final List<File> classFiles;
+		private final List<? extends CharSequence> parameterNameData;
+		private final int from;
+		private final int to;
+
+		private EnhanceClasses(Enhancer enhancer, List<File> classFiles, List<? extends CharSequence> parameterNameData, int from, int to) {
+			this.enhancer = enhancer;
+			this.classFiles = classFiles;
+			this.parameterNameData = parameterNameData;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			if (to - from > 1) {
+				int middle = (from + to) >>> 1;
+				invokeAll(new EnhanceClasses(enhancer, classFiles, parameterNameData, from, middle),
+						new EnhanceClasses(enhancer, classFiles, parameterNameData, middle, to));
+			} else if (to > from) {
+				try {
+					enhancer.enhance(classFiles.get(from), parameterNameData.get(from));
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Writes the names into the standard <code>MethodParameters</code> attribute of each
+	 * method, as javac does with <code>-parameters</code>, instead of adding a field. Then
+	 * <code>java.lang.reflect.Parameter.getName()</code>, and so DefaultParanamer, has them
+	 * without any help. The data is v1 lines of "methodName paramTypes paramNames".
+	 * <p>
+	 * Methods that have the attribute already are left alone, as are methods whose parameter
+	 * types do not match a line, like the constructors of inner classes and enums, which take
+	 * parameters that are not in the source.
+	 * </p>
+	 */
+	public static class MethodParameters extends Enhancer {
+
+		/**
+		 * @return the class with the names added, or null if no method gets names it did not have
+		 */
+		@Override
+		protected byte[] enhance(byte[] classBytecode, CharSequence parameterNameData) {
+			final Map<String, String[]> namesByMethod = new HashMap<String, String[]>();
+			for (String line : parameterNameData.toString().split("\n")) {
+				String[] parts = line.trim().split(" ");
+				if (parts.length == 3) {
+					String key = parts[0] + " " + parts[1].replace('$', '.');
+					if (!namesByMethod.containsKey(key)) {
+						namesByMethod.put(key, parts[2].split(","));
+					}
+				}
+			}
+
+			ClassReader reader = new ClassReader(classBytecode);
+			final Set<String> named = getMethodsWithParameters(reader);
+			final boolean[] added = new boolean[1];
+
+			ClassWriter writer = new ClassWriter(reader, 0);
+			reader.accept(new ClassVisitor(ASM9, writer) {
+				public MethodVisitor visitMethod(int access, String name, String desc, String signature, String[] exceptions) {
+					MethodVisitor mv = super.visitMethod(access, name, desc, signature, exceptions);
+					String[] names = (access & ACC_SYNTHETIC) != 0 || named.contains(name + desc) ? null
+							: namesByMethod.get(name + " " + getTypeNames(desc));
+					if (mv == null || names == null || names.length != Type.getArgumentTypes(desc).length) {
+						return mv;
+					}
+					for (String parameterName : names) {
+						mv.visitParameter(parameterName, 0);
+					}
+					added[0] = true;
+					// wrapped, so that the writer does not copy the method as it was
+					return new MethodVisitor(ASM9, mv) {
+					};
+				}
+			}, 0);
+			return added[0] ? writer.toByteArray() : null;
+		}
+
+		private static String getTypeNames(String desc) {
+			StringBuilder sb = new StringBuilder();
+			for (Type type : Type.getArgumentTypes(desc)) {
+				if (sb.length() > 0) {
+					sb.append(',');
+				}
+				sb.append(type.getClassName().replace('$', '.'));
+			}
+			return sb.toString();
+		}
+
+		private static Set<String> getMethodsWithParameters(ClassReader reader) {
+			final Set<String> named = new HashSet<String>();
+			reader.accept(new ClassVisitor(ASM9) {
+				public MethodVisitor visitMethod(int access, final String name, final String desc, String signature, String[] exceptions) {
+					return new MethodVisitor(ASM9) {
+						public void visitParameter(String parameterName, int parameterAccess) {
+							named.add(name + desc);
+						}
+					};
+				}
+			// not SKIP_DEBUG, as ASM counts MethodParameters as debug information
+			}, ClassReader.SKIP_CODE | ClassReader.SKIP_FRAMES);
+			return named;
+		}
+	}
+
 }
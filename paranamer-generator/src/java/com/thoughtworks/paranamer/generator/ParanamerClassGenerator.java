@@ -0,0 +1,270 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.thoughtworks.paranamer.generator;
+
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Generates the bytecode of a subclass of com.thoughtworks.paranamer.GeneratedParanamer, whose
+ * constructor adds the parameter names of a list of methods and constructors, as constants.
+ * <p>
+ * A class has at most 65535 constants, and each distinct name takes two. When there are more
+ * names than fit, the rest go in package-private classes named after it with <code>$Part1</code>,
+ * <code>$Part2</code> and so on, which the constructor calls in turn. Only the first is registered
+ * as a service.
+ * </p>
+ */
+class ParanamerClassGenerator implements Opcodes {
+
+    private static final String SUPERCLASS = "com/thoughtworks/paranamer/GeneratedParanamer";
+    private static final String ADD_DESCRIPTOR = "(Ljava/lang/String;Ljava/lang/String;[Ljava/lang/String;[Ljava/lang/String;)V";
+
+    /**
+     * A method's code is at most 64KB, so the adds are spread over methods of about this much.
+     */
+    private static final int MAX_CODE_BYTES = 60000;
+
+    /**
+     * How many distinct names go in one class, leaving room in its constants for everything else.
+     */
+    private static final int MAX_NAMES = 30000;
+
+    /**
+     * Writes the class, and any parts it needs, to the output path, and registers it in
+     * <code>META-INF/services/com.thoughtworks.paranamer.Paranamer</code> there, unless it is already.
+     * @param outputPath the directory of the compiled classes
+     * @param className the binary name of the class to generate
+     * @param entries each {className, methodName, parameterTypes, parameterNames}, the last two comma separated
+     * @throws IOException if the class or the services file could not be written
+     */
+    static void write(String outputPath, String className, List<String[]> entries) throws IOException {
+        for (Map.Entry<String, byte[]> generated : generate(className, entries).entrySet()) {
+            File classFile = new File(outputPath, generated.getKey().replace('.', File.separatorChar) + ".class");
+            classFile.getParentFile().mkdirs();
+            FileOutputStream os = new FileOutputStream(classFile);
+            try {
+                os.write(generated.getValue());
+            } finally {
+                os.close();
+            }
+        }
+
+        File services = new File(outputPath, "META-INF/services/com.thoughtworks.paranamer.Paranamer");
+        List<String> registered = new ArrayList<String>();
+        if (services.exists()) {
+            registered.addAll(Files.readAllLines(services.toPath(), StandardCharsets.UTF_8));
+        }
+        if (!registered.contains(className)) {
+            registered.add(className);
+            services.getParentFile().mkdirs();
+            Files.write(services.toPath(), registered, StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * @param className the binary name of the class to generate
+     * @param entries each {className, methodName, parameterTypes, parameterNames}, the last two comma separated
+     * @return the class files by binary name, the class itself first and then its parts
+     */
+    static Map<String, byte[]> generate(String className, List<String[]> entries) {
+        List<List<String[]>> parts = splitIntoParts(entries);
+        String internalName = className.replace('.', '/');
+        Map<String, byte[]> classes = new LinkedHashMap<String, byte[]>();
+
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        writer.visit(V1_8, ACC_PUBLIC + ACC_FINAL + ACC_SUPER, internalName, null, SUPERCLASS, null);
+        List<List<String[]>> chunks = splitIntoMethods(parts.get(0));
+        MethodVisitor constructor = writer.visitMethod(ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(ALOAD, 0);
+        constructor.visitMethodInsn(INVOKESPECIAL, SUPERCLASS, "<init>", "()V", false);
+        for (int i = 0; i < chunks.size(); i++) {
+            constructor.visitVarInsn(ALOAD, 0);
+            constructor.visitMethodInsn(INVOKESPECIAL, internalName, "add" + i, "()V", false);
+        }
+        for (int i = 1; i < parts.size(); i++) {
+            constructor.visitVarInsn(ALOAD, 0);
+            constructor.visitMethodInsn(INVOKESTATIC, internalName + "$Part" + i, "addTo", "(L" + internalName + ";)V", false);
+        }
+        constructor.visitInsn(RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        for (int i = 0; i < chunks.size(); i++) {
+            writeAdds(writer.visitMethod(ACC_PRIVATE, "add" + i, "()V", null, null), chunks.get(i), internalName, "add");
+        }
+        if (parts.size() > 1) {
+            // as add is protected, and so out of reach of the parts
+            MethodVisitor put = writer.visitMethod(ACC_FINAL, "put", ADD_DESCRIPTOR, null, null);
+            put.visitCode();
+            for (int i = 0; i <= 4; i++) {
+                put.visitVarInsn(ALOAD, i);
+            }
+            put.visitMethodInsn(INVOKEVIRTUAL, internalName, "add", ADD_DESCRIPTOR, false);
+            put.visitInsn(RETURN);
+            put.visitMaxs(0, 0);
+            put.visitEnd();
+        }
+        writer.visitEnd();
+        classes.put(className, writer.toByteArray());
+
+        for (int i = 1; i < parts.size(); i++) {
+            String partName = internalName + "$Part" + i;
+            String addDescriptor = "(L" + internalName + ";)V";
+            ClassWriter part = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+            part.visit(V1_8, ACC_FINAL + ACC_SUPER, partName, null, "java/lang/Object", null);
+            chunks = splitIntoMethods(parts.get(i));
+            MethodVisitor addTo = part.visitMethod(ACC_STATIC, "addTo", addDescriptor, null, null);
+            addTo.visitCode();
+            for (int j = 0; j < chunks.size(); j++) {
+                addTo.visitVarInsn(ALOAD, 0);
+                addTo.visitMethodInsn(INVOKESTATIC, partName, "add" + j, addDescriptor, false);
+            }
+            addTo.visitInsn(RETURN);
+            addTo.visitMaxs(0, 0);
+            addTo.visitEnd();
+            for (int j = 0; j < chunks.size(); j++) {
+                writeAdds(part.visitMethod(ACC_PRIVATE + ACC_STATIC, "add" + j, addDescriptor, null, null), chunks.get(j), internalName, "put");
+            }
+            part.visitEnd();
+            classes.put(className + "$Part" + i, part.toByteArray());
+        }
+        return classes;
+    }
+
+    /**
+     * Adds each entry to the GeneratedParanamer in local 0, which is <code>this</code> in the class
+     * itself, and the parameter in its parts.
+     */
+    private static void writeAdds(MethodVisitor adds, List<String[]> chunk, String internalName, String method) {
+        adds.visitCode();
+        for (String[] entry : chunk) {
+            adds.visitVarInsn(ALOAD, 0);
+            adds.visitLdcInsn(entry[0]);
+            adds.visitLdcInsn(entry[1]);
+            pushArray(adds, entry[2].split(","));
+            pushArray(adds, entry[3].split(","));
+            adds.visitMethodInsn(INVOKEVIRTUAL, internalName, method, ADD_DESCRIPTOR, false);
+        }
+        adds.visitInsn(RETURN);
+        adds.visitMaxs(0, 0);
+        adds.visitEnd();
+    }
+
+    private static List<List<String[]>> splitIntoParts(List<String[]> entries) {
+        List<List<String[]>> parts = new ArrayList<List<String[]>>();
+        List<String[]> part = new ArrayList<String[]>();
+        Set<String> names = new HashSet<String>();
+        for (String[] entry : entries) {
+            List<String> constants = new ArrayList<String>();
+            constants.add(entry[0]);
+            constants.add(entry[1]);
+            constants.addAll(Arrays.asList(entry[2].split(",")));
+            constants.addAll(Arrays.asList(entry[3].split(",")));
+            int added = 0;
+            for (String constant : constants) {
+                if (!names.contains(constant)) {
+                    added++;
+                }
+            }
+            if (names.size() + added > MAX_NAMES && !part.isEmpty()) {
+                parts.add(part);
+                part = new ArrayList<String[]>();
+                names.clear();
+            }
+            part.add(entry);
+            names.addAll(constants);
+        }
+        parts.add(part);
+        return parts;
+    }
+
+    private static List<List<String[]>> splitIntoMethods(List<String[]> entries) {
+        List<List<String[]>> chunks = new ArrayList<List<String[]>>();
+        List<String[]> chunk = new ArrayList<String[]>();
+        int bytes = 0;
+        for (String[] entry : entries) {
+            int size = codeSize(entry);
+            if (bytes + size > MAX_CODE_BYTES && !chunk.isEmpty()) {
+                chunks.add(chunk);
+                chunk = new ArrayList<String[]>();
+                bytes = 0;
+            }
+            chunk.add(entry);
+            bytes += size;
+        }
+        chunks.add(chunk);
+        return chunks;
+    }
+
+    /**
+     * An upper bound, with ldc_w and sipush throughout.
+     */
+    private static int codeSize(String[] entry) {
+        int parameters = entry[2].split(",").length + entry[3].split(",").length;
+        return 1 + 3 + 3 + 2 * (3 + 3) + parameters * (1 + 3 + 3 + 1) + 3;
+    }
+
+    private static void pushArray(MethodVisitor mv, String[] strings) {
+        pushInt(mv, strings.length);
+        mv.visitTypeInsn(ANEWARRAY, "java/lang/String");
+        for (int i = 0; i < strings.length; i++) {
+            mv.visitInsn(DUP);
+            pushInt(mv, i);
+            mv.visitLdcInsn(strings[i]);
+            mv.visitInsn(AASTORE);
+        }
+    }
+
+    private static void pushInt(MethodVisitor mv, int value) {
+        if (value <= 5) {
+            mv.visitInsn(ICONST_0 + value);
+        } else if (value <= Byte.MAX_VALUE) {
+            mv.visitIntInsn(BIPUSH, value);
+        } else {
+            mv.visitIntInsn(SIPUSH, value);
+        }
+    }
+}
@@ -29,6 +29,7 @@
  */
 package com.thoughtworks.paranamer.generator;
 
+import com.thoughtworks.paranamer.index.IndexWriter;
 import com.thoughtworks.qdox.JavaProjectBuilder;
 import com.thoughtworks.qdox.model.JavaClass;
 import com.thoughtworks.qdox.model.JavaConstructor;
@@ -36,14 +37,28 @@ import com.thoughtworks.qdox.model.JavaMethod;
 import com.thoughtworks.qdox.model.JavaParameter;
 
 import java.io.File;
+import java.io.FileInputStream;
 import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
 
 /**
  * Qdox-based implementation of ParanamerGenerator which parses Java source files to processSourcePath
@@ -59,14 +74,213 @@ public class QdoxParanamerGenerator implements ParanamerGenerator {
     private static final String NEWLINE = "\n";
     private static final String COMMA = ",";
 
+    /**
+     * Where {@link #writeIndex(String, String)} writes the index of all the classes, in the output directory.
+     */
+    public static final String INDEX_RESOURCE = IndexWriter.INDEX_RESOURCE;
+
+    private static final String STATE_GENERATOR = "generator";
+    private static final String STATE_SOURCE = "source.";
+    private static final String STATE_CLASS = "class.";
+
+    private int threads = 1;
+    private int rewritten;
+    private int skipped;
+    private boolean changedNames;
+
     public QdoxParanamerGenerator() {
     }
 
+    /**
+     * @param threads how many classes to enhance at once: 1 (the default) for one at a time, or 0
+     * for as many as there are processors
+     */
+    public void setThreads(int threads) {
+        if (threads < 0) {
+            throw new IllegalArgumentException("threads must not be negative: " + threads);
+        }
+        this.threads = threads;
+    }
+
     public void processSourcePath(String sourcePath, String outputPath) throws IOException {
     	List<JavaClass> classes = getClassesSortedByName(sourcePath);
         processClasses(classes, outputPath);
     }
 
+    /**
+     * Like {@link #processSourcePath(String, String)}, but remembers in a state file what it did, so that
+     * the next time only the sources that have changed since are parsed, along with the sources of classes
+     * that have been compiled again since. Of those, only the classes whose data differs from what they were
+     * given last time, or that have been compiled again, are rewritten. When nothing has changed, that is
+     * found out from the timestamps and lengths of the files, without reading any of them.
+     * <p>
+     * The state file is a properties file. For each source there is its timestamp and length, and for each
+     * class the timestamp and length of the class file as it was written, a hash of its data, and its source.
+     * </p>
+     * @param sourcePath the directory containing the Java source files
+     * @param outputPath the directory of the compiled classes
+     * @param stateFile where the state is kept between runs
+     * @return the number of classes handed to the enhancer, which only writes those it changes
+     * @throws IOException if a source, a class or the state could not be read or written
+     * @see #hasChangedNames()
+     */
+    public int processSourcePath(String sourcePath, String outputPath, File stateFile) throws IOException {
+        Properties state = new Properties();
+        if (stateFile.exists()) {
+            InputStream is = new FileInputStream(stateFile);
+            try {
+                state.load(is);
+            } finally {
+                is.close();
+            }
+            if (!getClass().getName().equals(state.getProperty(STATE_GENERATOR))) {
+                // made by another generator, whose output might be different
+                state.clear();
+            }
+        }
+        Properties next = new Properties();
+        next.setProperty(STATE_GENERATOR, getClass().getName());
+
+        File root = new File(sourcePath);
+        List<String> sources = new ArrayList<String>();
+        findSources(root, "", sources);
+        Set<String> toParse = new TreeSet<String>();
+        for (String source : sources) {
+            String stamp = stamp(new File(root, source));
+            next.setProperty(STATE_SOURCE + source, stamp);
+            if (!stamp.equals(state.getProperty(STATE_SOURCE + source))) {
+                toParse.add(source);
+            }
+        }
+        Map<String, String> unchanged = new HashMap<String, String>();
+        for (String key : state.stringPropertyNames()) {
+            if (key.startsWith(STATE_CLASS)) {
+                String[] recorded = state.getProperty(key).split(COMMA, 4);
+                String binaryName = key.substring(STATE_CLASS.length());
+                if (recorded.length == 4 && next.containsKey(STATE_SOURCE + recorded[3])) {
+                    File classFile = new File(outputPath, binaryName.replace('.', File.separatorChar) + ".class");
+                    if ((recorded[0] + COMMA + recorded[1]).equals(stamp(classFile))) {
+                        unchanged.put(key, state.getProperty(key));
+                    } else {
+                        toParse.add(recorded[3]);
+                    }
+                }
+            }
+        }
+
+        List<File> classFiles = new ArrayList<File>();
+        List<CharSequence> contents = new ArrayList<CharSequence>();
+        List<String> keys = new ArrayList<String>();
+        List<String> parsedFrom = new ArrayList<String>();
+        if (!toParse.isEmpty()) {
+            JavaProjectBuilder builder = new JavaProjectBuilder();
+            // the other sources are only parsed if the changed ones need them to resolve a type
+            builder.addSourceFolder(root);
+            for (String source : toParse) {
+                List<JavaClass> classes = new ArrayList<JavaClass>();
+                addWithNestedClasses(builder.addSource(new File(root, source)).getClasses(), classes);
+                for (JavaClass javaClass : classes) {
+                    String key = STATE_CLASS + javaClass.getBinaryName();
+                    CharSequence content = makeParameterData(javaClass);
+                    File classFile = new File(outputPath, javaClass.getBinaryName().replace('.', File.separatorChar) + ".class");
+                    String recorded = stamp(classFile) + COMMA + hash(content) + COMMA + source;
+                    if (recorded.equals(state.getProperty(key))) {
+                        next.setProperty(key, recorded);
+                    } else {
+                        classFiles.add(classFile);
+                        contents.add(content);
+                        keys.add(key);
+                        parsedFrom.add(source);
+                    }
+                    unchanged.remove(key);
+                }
+            }
+            enhance(classFiles, contents);
+        }
+        for (Map.Entry<String, String> entry : unchanged.entrySet()) {
+            if (!toParse.contains(entry.getValue().split(COMMA, 4)[3])) {
+                next.setProperty(entry.getKey(), entry.getValue());
+            }
+        }
+        for (int i = 0; i < classFiles.size(); i++) {
+            next.setProperty(keys.get(i), stamp(classFiles.get(i)) + COMMA + hash(contents.get(i)) + COMMA + parsedFrom.get(i));
+        }
+
+        changedNames = !dataHashes(next).equals(dataHashes(state));
+        if (!next.equals(state)) {
+            stateFile.getAbsoluteFile().getParentFile().mkdirs();
+            OutputStream os = new FileOutputStream(stateFile);
+            try {
+                next.store(os, "paranamer");
+            } finally {
+                os.close();
+            }
+        }
+        return classFiles.size();
+    }
+
+    /**
+     * @return whether the last {@link #processSourcePath(String, String, File)} found parameter names
+     *         other than the ones in the state, or classes added or gone, so that what is made from the
+     *         names of all the classes, like the index, has to be made again
+     */
+    public boolean hasChangedNames() {
+        return changedNames;
+    }
+
+    private static Map<String, String> dataHashes(Properties state) {
+        Map<String, String> hashes = new HashMap<String, String>();
+        for (String key : state.stringPropertyNames()) {
+            if (key.startsWith(STATE_CLASS)) {
+                String[] recorded = state.getProperty(key).split(COMMA, 4);
+                hashes.put(key, recorded.length == 4 ? recorded[2] : "");
+            }
+        }
+        return hashes;
+    }
+
+    private static void findSources(File dir, String prefix, List<String> sources) {
+        File[] files = dir.listFiles();
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (file.isDirectory()) {
+                findSources(file, prefix + file.getName() + "/", sources);
+            } else if (file.getName().endsWith(".java")) {
+                sources.add(prefix + file.getName());
+            }
+        }
+    }
+
+    private static void addWithNestedClasses(List<JavaClass> classes, List<JavaClass> all) {
+        for (JavaClass javaClass : classes) {
+            all.add(javaClass);
+            addWithNestedClasses(javaClass.getNestedClasses(), all);
+        }
+    }
+
+    /**
+     * @return the timestamp and length of a file, or "0,0" if there is no such file
+     */
+    private static String stamp(File file) {
+        return file.lastModified() + COMMA + file.length();
+    }
+
+    private static String hash(CharSequence content) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(content.toString().getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder();
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every JVM has SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
     private List<JavaClass> getClassesSortedByName(String sourcePath) {
     	JavaProjectBuilder builder = new JavaProjectBuilder();
         builder.addSourceTree(new File(sourcePath));
@@ -81,16 +295,129 @@ public class QdoxParanamerGenerator implements ParanamerGenerator {
     }
 
     public void processClasses(Collection<JavaClass> classes, String outputPath) throws IOException {
+        List<File> classFiles = new ArrayList<File>(classes.size());
+        List<CharSequence> contents = new ArrayList<CharSequence>(classes.size());
         for (JavaClass javaClass : classes) {
-        	StringBuilder content = new StringBuilder();
-        	content.append(addConstructors(javaClass.getConstructors()));
-        	content.append(addMethods(javaClass.getMethods()));
+            contents.add(makeParameterData(javaClass));
+            classFiles.add(new File(outputPath, javaClass.getBinaryName().replace('.', File.separatorChar) + ".class"));
+        }
+        enhance(classFiles, contents);
+    }
+
+    private void enhance(List<File> classFiles, List<CharSequence> contents) throws IOException {
+        Enhancer enhancer = makeEnhancer();
+        try {
+            // the source model is read before, and only the class files in parallel
+            if (threads == 1 || classFiles.size() < 2) {
+                enhancer.enhance(classFiles, contents, null);
+            } else if (threads == 0) {
+                enhancer.enhance(classFiles, contents, ForkJoinPool.commonPool());
+            } else {
+                ForkJoinPool pool = new ForkJoinPool(threads);
+                try {
+                    enhancer.enhance(classFiles, contents, pool);
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        } finally {
+            rewritten += enhancer.getRewritten();
+            skipped += enhancer.getSkipped();
+        }
+    }
+
+    /**
+     * @return how many classes have been written, over all the calls to this generator
+     */
+    public int getRewritten() {
+        return rewritten;
+    }
 
-            makeEnhancer().enhance(new File(outputPath, javaClass.getBinaryName().replace('.', File.separatorChar) + ".class"), content);
+    /**
+     * @return how many classes have been left as they were, as they had nothing to add
+     */
+    public int getSkipped() {
+        return skipped;
+    }
+
+    /**
+     * The <code>__PARANAMER_DATA</code> for a class: a line of "methodName paramTypes paramNames"
+     * for each of its non-private constructors and methods that have parameters.
+     * @param javaClass the class in question
+     * @return the data
+     */
+    protected CharSequence makeParameterData(JavaClass javaClass) {
+        return makeLines(javaClass);
+    }
 
+    private CharSequence makeLines(JavaClass javaClass) {
+        StringBuilder content = new StringBuilder();
+        content.append(addConstructors(javaClass.getConstructors()));
+        content.append(addMethods(javaClass.getMethods()));
+        return content;
+    }
+
+    /**
+     * Writes the parameter names of all the classes in the source path to a single
+     * <code>META-INF/paranamer/index.bin</code> in the output path, for IndexParanamer,
+     * rather than (or as well as) a <code>__PARANAMER_DATA</code> field in each class.
+     * @param sourcePath the directory containing the Java source files
+     * @param outputPath the directory the index goes below
+     * @throws IOException if the index could not be written
+     */
+    public void writeIndex(String sourcePath, String outputPath) throws IOException {
+        writeIndex(getClassesSortedByName(sourcePath), outputPath);
+    }
+
+    /**
+     * @param classes the classes in question
+     * @param outputPath the directory the index goes below
+     * @throws IOException if the index could not be written
+     * @see IndexWriter
+     */
+    public void writeIndex(Collection<JavaClass> classes, String outputPath) throws IOException {
+        IndexWriter writer = new IndexWriter();
+        for (JavaClass javaClass : classes) {
+            for (String line : makeLines(javaClass).toString().split(NEWLINE)) {
+                String[] parts = line.trim().split(SPACE);
+                if (parts.length == 3) {
+                    writer.add(javaClass.getBinaryName(), parts[0], parts[1], parts[2]);
+                }
+            }
+        }
+
+        File index = new File(outputPath, INDEX_RESOURCE);
+        index.getParentFile().mkdirs();
+        FileOutputStream os = new FileOutputStream(index);
+        try {
+            writer.writeTo(os);
+        } finally {
+            os.close();
         }
     }
 
+    /**
+     * Writes a subclass of com.thoughtworks.paranamer.GeneratedParanamer, with the parameter names of
+     * all the classes in the source path compiled in, to the output path. It is registered in
+     * <code>META-INF/services/com.thoughtworks.paranamer.Paranamer</code> there, for ServiceLoaderParanamer.
+     * @param sourcePath the directory containing the Java source files
+     * @param outputPath the directory of the compiled classes
+     * @param className the name of the class to write, like com.example.ExampleParanamer
+     * @throws IOException if the class could not be written
+     */
+    public void writeParanamerClass(String sourcePath, String outputPath, String className) throws IOException {
+        List<String[]> entries = new ArrayList<String[]>();
+        for (JavaClass javaClass : getClassesSortedByName(sourcePath)) {
+            for (String line : makeLines(javaClass).toString().split(NEWLINE)) {
+                String[] parts = line.trim().split(SPACE);
+                if (parts.length == 3) {
+                    entries.add(new String[] {javaClass.getBinaryName(), parts[0], parts[1], parts[2]});
+                }
+            }
+        }
+        ParanamerClassGenerator.write(outputPath, className, entries);
+    }
+
     public Enhancer makeEnhancer() {
         return new Enhancer();
     }
@@ -180,4 +507,103 @@ public class QdoxParanamerGenerator implements ParanamerGenerator {
         }
         return sb.toString();
     }
+
+    /**
+     * Writes the parameter names into the standard <code>MethodParameters</code> attribute of
+     * each method, as javac's <code>-parameters</code> would have, rather than a
+     * <code>__PARANAMER_DATA</code> field. DefaultParanamer reads them with no further help.
+     */
+    public static class MethodParameters extends QdoxParanamerGenerator {
+
+        @Override
+        public Enhancer makeEnhancer() {
+            return new Enhancer.MethodParameters();
+        }
+    }
+
+    /**
+     * Generates the compact v2 form of <code>__PARANAMER_DATA</code>, which LegacyParanamer reads
+     * as well as the v1 lines. Every method name, type name and parameter name is written once, in a table of
+     * strings, and each method refers to them by index. Big classes repeat the same few type and
+     * parameter names over and over, so this is a fraction of the size of the v1 lines.
+     * <p>
+     * After a "v2.0" line come the number of strings, each string as its length then its chars,
+     * the number of methods, and for each method the index of its name, its number of parameters,
+     * the index of each parameter type, and the index of each parameter name. The numbers are
+     * varints of 5 bits to a char, least significant first, written as <code>'!' + bits</code>,
+     * plus 32 where more follow. That keeps them to printable ASCII, a byte each in the class file.
+     * </p>
+     */
+    public static class Compact extends QdoxParanamerGenerator {
+
+        static final String VERSION = "v2.0";
+
+        @Override
+        protected CharSequence makeParameterData(JavaClass javaClass) {
+            return encode(super.makeParameterData(javaClass));
+        }
+
+        /**
+         * @param lines v1 data, a line of "methodName paramTypes paramNames" for each method
+         * @return the same data in the v2 form, or nothing if there was nothing
+         */
+        public static String encode(CharSequence lines) {
+            Map<String, Integer> indexes = new LinkedHashMap<String, Integer>();
+            List<int[]> methods = new ArrayList<int[]>();
+            for (String line : lines.toString().split(NEWLINE)) {
+                String[] parts = line.trim().split(SPACE);
+                if (parts.length < 3) {
+                    continue;
+                }
+                String[] types = parts[parts.length - 2].split(COMMA);
+                String[] names = parts[parts.length - 1].split(COMMA);
+                if (names.length != types.length) {
+                    continue;
+                }
+                int[] method = new int[2 + types.length + names.length];
+                method[0] = indexOf(indexes, parts[parts.length - 3]);
+                method[1] = types.length;
+                for (int i = 0; i < types.length; i++) {
+                    method[2 + i] = indexOf(indexes, types[i]);
+                }
+                for (int i = 0; i < names.length; i++) {
+                    method[2 + types.length + i] = indexOf(indexes, names[i]);
+                }
+                methods.add(method);
+            }
+            if (methods.isEmpty()) {
+                return "";
+            }
+            StringBuilder sb = new StringBuilder(VERSION).append(NEWLINE);
+            appendVarint(sb, indexes.size());
+            for (String string : indexes.keySet()) {
+                appendVarint(sb, string.length());
+                sb.append(string);
+            }
+            appendVarint(sb, methods.size());
+            for (int[] method : methods) {
+                for (int i : method) {
+                    appendVarint(sb, i);
+                }
+            }
+            return sb.toString();
+        }
+
+        private static int indexOf(Map<String, Integer> indexes, String string) {
+            Integer index = indexes.get(string);
+            if (index == null) {
+                index = indexes.size();
+                indexes.put(string, index);
+            }
+            return index;
+        }
+
+        static void appendVarint(StringBuilder sb, int value) {
+            while (value >= 32) {
+                sb.append((char) ('!' + 32 + (value & 31)));
+                value >>>= 5;
+            }
+            sb.append((char) ('!' + value));
+        }
+    }
 }
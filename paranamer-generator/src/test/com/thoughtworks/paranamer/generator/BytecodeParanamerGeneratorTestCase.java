@@ -0,0 +1,205 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.thoughtworks.paranamer.generator;
+
+import com.thoughtworks.paranamer.index.IndexWriter;
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.ToolProvider;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URI;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+public class BytecodeParanamerGeneratorTestCase {
+
+    private static final String SUBJECT = "package example;\n"
+            + "public class Subject {\n"
+            + "    public Subject(int[] counts, String... more) {}\n"
+            + "    public static long foo(long first, String second) { long reused = first; return reused; }\n"
+            + "    public void bar() {}\n"
+            + "    private void hidden(int secret) {}\n"
+            + "    public abstract static class Abstract {\n"
+            + "        public abstract void baz(int abstractly);\n"
+            + "    }\n"
+            + "}\n";
+
+    @Test
+    public void namesAreTakenFromTheLocalVariableTable() throws Exception {
+        File classes = compile("-g");
+        File output = Files.createTempDirectory("enhanced").toFile();
+        new BytecodeParanamerGenerator().processSourcePath(classes.getPath(), output.getPath());
+
+        Assert.assertEquals("<init> int[],java.lang.String[] counts,more \n"
+                + "foo long,java.lang.String first,second \n", getData(output, "example.Subject"));
+        // abstract methods have no local variables
+        Assert.assertFalse(new File(output, "example/Subject$Abstract.class").exists());
+    }
+
+    @Test
+    public void namesAreTakenFromMethodParameters() throws Exception {
+        File classes = compile("-g:none", "-parameters");
+        new BytecodeParanamerGenerator().processSourcePath(classes.getPath(), classes.getPath());
+
+        Assert.assertEquals("<init> int[],java.lang.String[] counts,more \n"
+                + "foo long,java.lang.String first,second \n", getData(classes, "example.Subject"));
+        Assert.assertEquals("baz int abstractly \n", getData(classes, "example.Subject$Abstract"));
+    }
+
+    @Test
+    public void classesThatNeedNoChangeAreCopiedAsTheyAre() throws Exception {
+        File classes = compile("-g");
+        new BytecodeParanamerGenerator().processSourcePath(classes.getPath(), classes.getPath());
+        File output = Files.createTempDirectory("enhanced").toFile();
+        new BytecodeParanamerGenerator().processSourcePath(classes.getPath(), output.getPath());
+
+        Assert.assertArrayEquals(Files.readAllBytes(new File(classes, "example/Subject.class").toPath()),
+                Files.readAllBytes(new File(output, "example/Subject.class").toPath()));
+    }
+
+    @Test
+    public void classesWithoutDebugInfoAreLeftAlone() throws Exception {
+        File classes = compile("-g:none");
+        long modified = new File(classes, "example/Subject.class").lastModified();
+        new BytecodeParanamerGenerator().processSourcePath(classes.getPath(), classes.getPath());
+        Assert.assertEquals(modified, new File(classes, "example/Subject.class").lastModified());
+    }
+
+    @Test
+    public void jarsAreIndexed() throws Exception {
+        File jar = jar(compile("-g"));
+
+        File output = Files.createTempDirectory("index").toFile();
+        new BytecodeParanamerGenerator().writeIndex(jar.getPath(), output.getPath());
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(
+                Files.readAllBytes(new File(output, IndexWriter.INDEX_RESOURCE).toPath())));
+        Assert.assertEquals(0x504E4958, data.readInt());
+        Assert.assertEquals(1, data.readInt());
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            data.readInt();
+        }
+        List<String> entries = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            entries.add(data.readUTF() + " " + data.readUTF());
+        }
+        Assert.assertEquals(Arrays.asList("example.Subject <init> int[],java.lang.String[] counts,more",
+                "example.Subject foo long,java.lang.String first,second"), entries);
+    }
+
+    @Test
+    public void jarsAreNotEnhanced() throws Exception {
+        File jar = jar(compile("-g"));
+        File output = Files.createTempDirectory("enhanced").toFile();
+        try {
+            new BytecodeParanamerGenerator().processSourcePath(jar.getPath(), output.getPath());
+            Assert.fail("should have barfed");
+        } catch (IOException e) {
+            // expected
+        }
+        Assert.assertEquals(0, output.list().length);
+    }
+
+    @Test
+    public void aParanamerClassIsWrittenFromTheClasses() throws Exception {
+        File classes = compile("-g:none", "-parameters");
+        new BytecodeParanamerGenerator().writeParanamerClass(classes.getPath(), classes.getPath(), "example.SubjectParanamer");
+
+        Assert.assertEquals(Collections.singletonList("example.SubjectParanamer"),
+                Files.readAllLines(new File(classes, "META-INF/services/com.thoughtworks.paranamer.Paranamer").toPath()));
+        ClassReader reader = new ClassReader(Files.readAllBytes(new File(classes, "example/SubjectParanamer.class").toPath()));
+        Assert.assertEquals("com/thoughtworks/paranamer/GeneratedParanamer", reader.getSuperName());
+        final List<Object> constants = new ArrayList<Object>();
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    public void visitLdcInsn(Object value) {
+                        constants.add(value);
+                    }
+                };
+            }
+        }, 0);
+        Assert.assertTrue(constants.toString(), Collections.indexOfSubList(constants,
+                Arrays.asList("example.Subject$Abstract", "baz", "int", "abstractly")) >= 0);
+    }
+
+    private static File jar(File classes) throws Exception {
+        File jar = File.createTempFile("subject", ".jar");
+        jar.deleteOnExit();
+        JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar));
+        for (String name : new String[] {"example/Subject.class", "example/Subject$Abstract.class"}) {
+            jos.putNextEntry(new JarEntry(name));
+            jos.write(Files.readAllBytes(new File(classes, name).toPath()));
+            jos.closeEntry();
+        }
+        jos.close();
+        return jar;
+    }
+
+    private static String getData(File classes, String className) throws Exception {
+        ClassLoader loader = new URLClassLoader(new URL[] {classes.toURI().toURL()}, null);
+        return (String) loader.loadClass(className).getField("__PARANAMER_DATA").get(null);
+    }
+
+    private static File compile(String... options) throws Exception {
+        File output = Files.createTempDirectory("classes").toFile();
+        JavaFileObject file = new SimpleJavaFileObject(URI.create("string:///example/Subject.java"), JavaFileObject.Kind.SOURCE) {
+            @Override
+            public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+                return SUBJECT;
+            }
+        };
+        List<String> arguments = new ArrayList<String>(Arrays.asList(options));
+        arguments.addAll(Arrays.asList("-d", output.getPath()));
+        JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        Assert.assertTrue(compiler.getTask(null, null, null, arguments, null, Collections.singletonList(file)).call());
+        return output;
+    }
+}
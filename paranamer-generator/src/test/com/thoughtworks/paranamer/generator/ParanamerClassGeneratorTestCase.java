@@ -0,0 +1,113 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.thoughtworks.paranamer.generator;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ParanamerClassGeneratorTestCase {
+
+    @Test
+    public void namesThatDoNotFitInOneClassAreSplitIntoParts() throws Exception {
+        List<String[]> entries = new ArrayList<String[]>();
+        for (int i = 0; i < 40000; i++) {
+            entries.add(new String[] {"com.example.Big", "method" + i, "int,java.lang.String", "first" + i + ",second" + i});
+        }
+        final Map<String, byte[]> classes = ParanamerClassGenerator.generate("com.example.BigParanamer", entries);
+        Assert.assertTrue(classes.keySet().toString(), classes.size() > 1);
+        Assert.assertEquals("com.example.BigParanamer", classes.keySet().iterator().next());
+
+        final byte[] superclass = makeGeneratedParanamer();
+        ClassLoader loader = new ClassLoader(null) {
+            @Override
+            protected Class<?> findClass(String name) throws ClassNotFoundException {
+                byte[] bytes = name.equals("com.thoughtworks.paranamer.GeneratedParanamer") ? superclass : classes.get(name);
+                if (bytes == null) {
+                    throw new ClassNotFoundException(name);
+                }
+                return defineClass(name, bytes, 0, bytes.length);
+            }
+        };
+        loader.loadClass("com.example.BigParanamer").newInstance();
+        Class<?> generatedParanamer = loader.loadClass("com.thoughtworks.paranamer.GeneratedParanamer");
+        Assert.assertEquals(40000, generatedParanamer.getField("added").getInt(null));
+        Assert.assertEquals("method39999 second39999", generatedParanamer.getField("last").get(null));
+    }
+
+    /**
+     * Stands in for the real one, which is in paranamer, and counts what is added to it.
+     */
+    private static byte[] makeGeneratedParanamer() {
+        ClassWriter writer = new ClassWriter(ClassWriter.COMPUTE_MAXS);
+        String name = "com/thoughtworks/paranamer/GeneratedParanamer";
+        writer.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC + Opcodes.ACC_ABSTRACT + Opcodes.ACC_SUPER, name, null, "java/lang/Object", null);
+        writer.visitField(Opcodes.ACC_PUBLIC + Opcodes.ACC_STATIC, "added", "I", null, null).visitEnd();
+        writer.visitField(Opcodes.ACC_PUBLIC + Opcodes.ACC_STATIC, "last", "Ljava/lang/String;", null, null).visitEnd();
+        MethodVisitor constructor = writer.visitMethod(Opcodes.ACC_PUBLIC, "<init>", "()V", null, null);
+        constructor.visitCode();
+        constructor.visitVarInsn(Opcodes.ALOAD, 0);
+        constructor.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/Object", "<init>", "()V", false);
+        constructor.visitInsn(Opcodes.RETURN);
+        constructor.visitMaxs(0, 0);
+        constructor.visitEnd();
+        MethodVisitor add = writer.visitMethod(Opcodes.ACC_PROTECTED + Opcodes.ACC_FINAL, "add",
+                "(Ljava/lang/String;Ljava/lang/String;[Ljava/lang/String;[Ljava/lang/String;)V", null, null);
+        add.visitCode();
+        add.visitFieldInsn(Opcodes.GETSTATIC, name, "added", "I");
+        add.visitInsn(Opcodes.ICONST_1);
+        add.visitInsn(Opcodes.IADD);
+        add.visitFieldInsn(Opcodes.PUTSTATIC, name, "added", "I");
+        // last = methodName + " " + parameterNames[1]
+        add.visitTypeInsn(Opcodes.NEW, "java/lang/StringBuilder");
+        add.visitInsn(Opcodes.DUP);
+        add.visitVarInsn(Opcodes.ALOAD, 2);
+        add.visitMethodInsn(Opcodes.INVOKESPECIAL, "java/lang/StringBuilder", "<init>", "(Ljava/lang/String;)V", false);
+        add.visitLdcInsn(" ");
+        add.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+        add.visitVarInsn(Opcodes.ALOAD, 4);
+        add.visitInsn(Opcodes.ICONST_1);
+        add.visitInsn(Opcodes.AALOAD);
+        add.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "append", "(Ljava/lang/String;)Ljava/lang/StringBuilder;", false);
+        add.visitMethodInsn(Opcodes.INVOKEVIRTUAL, "java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false);
+        add.visitFieldInsn(Opcodes.PUTSTATIC, name, "last", "Ljava/lang/String;");
+        add.visitInsn(Opcodes.RETURN);
+        add.visitMaxs(0, 0);
+        add.visitEnd();
+        writer.visitEnd();
+        return writer.toByteArray();
+    }
+}
@@ -32,11 +32,29 @@ package com.thoughtworks.paranamer.generator;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
+import org.objectweb.asm.ClassReader;
+import org.objectweb.asm.ClassVisitor;
+import org.objectweb.asm.ClassWriter;
+import org.objectweb.asm.MethodVisitor;
+import org.objectweb.asm.Opcodes;
 
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
 import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.util.concurrent.ForkJoinPool;
+import javax.tools.ToolProvider;
 
 public class QDoxParanamerTestCase {
 
@@ -77,6 +95,255 @@ public class QDoxParanamerTestCase {
     }
 
 
+    @Test
+    public void testCompactEncoding() {
+        String v2 = QdoxParanamerGenerator.Compact.encode("<init> java.util.Map map \n"
+                + "setMap java.util.Map map \n");
+        // strings <init>, java.util.Map, map and setMap, then two methods of one parameter each
+        Assert.assertEquals("v2.0\n%'<init>.java.util.Map$map'setMap#!\"\"#$\"\"#", v2);
+        Assert.assertEquals("", QdoxParanamerGenerator.Compact.encode(""));
+    }
+
+    @Test
+    public void testCompactVarints() {
+        StringBuilder sb = new StringBuilder();
+        QdoxParanamerGenerator.Compact.appendVarint(sb, 0);
+        QdoxParanamerGenerator.Compact.appendVarint(sb, 31);
+        QdoxParanamerGenerator.Compact.appendVarint(sb, 32);
+        QdoxParanamerGenerator.Compact.appendVarint(sb, 1000);
+        Assert.assertEquals("!@A\"I@", sb.toString());
+    }
+
+    @Test
+    public void testMethodParametersAttributesInsteadOfAField() throws Exception {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC + Opcodes.ACC_ABSTRACT, "com/thoughtworks/paranamer/generator/Named", null, "java/lang/Object", null);
+        cw.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_ABSTRACT, "foo", "(Ljava/lang/String;J)V", null, null).visitEnd();
+        cw.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_ABSTRACT, "bar", "([[I)V", null, null).visitEnd();
+        MethodVisitor baz = cw.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_ABSTRACT, "baz", "(Ljava/lang/Object;)V", null, null);
+        baz.visitParameter("given", 0);
+        baz.visitEnd();
+        cw.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_ABSTRACT, "qux", "(I)V", null, null).visitEnd();
+        cw.visitEnd();
+        File classFile = File.createTempFile("Named", ".class");
+        classFile.deleteOnExit();
+        Files.write(classFile.toPath(), cw.toByteArray());
+
+        new QdoxParanamerGenerator.MethodParameters().makeEnhancer().enhance(classFile, "bar int[][] grid \n"
+                + "baz java.lang.Object replaced \n"
+                + "foo java.lang.String,long text,count \n");
+
+        final byte[] bytes = Files.readAllBytes(classFile.toPath());
+        Class<?> named = new ClassLoader() {
+            Class<?> define() {
+                return defineClass("com.thoughtworks.paranamer.generator.Named", bytes, 0, bytes.length);
+            }
+        }.define();
+        Method foo = named.getMethod("foo", String.class, long.class);
+        Assert.assertEquals("text", foo.getParameters()[0].getName());
+        Assert.assertEquals("count", foo.getParameters()[1].getName());
+        Assert.assertEquals("grid", named.getMethod("bar", int[][].class).getParameters()[0].getName());
+        Assert.assertEquals("given", named.getMethod("baz", Object.class).getParameters()[0].getName());
+        Assert.assertFalse(named.getMethod("qux", int.class).getParameters()[0].isNamePresent());
+        try {
+            named.getField("__PARANAMER_DATA");
+            Assert.fail("should have no field");
+        } catch (NoSuchFieldException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testBigDataIsSplitAcrossConstants() throws Exception {
+        ClassWriter cw = new ClassWriter(0);
+        cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "com/thoughtworks/paranamer/generator/Big", null, "java/lang/Object", null);
+        cw.visitEnd();
+        File classFile = File.createTempFile("Big", ".class");
+        classFile.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(classFile);
+        fos.write(cw.toByteArray());
+        fos.close();
+
+        StringBuilder data = new StringBuilder();
+        while (data.length() < 150000) {
+            data.append("aMethod java.lang.String aParameter \n");
+        }
+        new Enhancer().enhance(classFile, data);
+
+        byte[] bytes = Files.readAllBytes(classFile.toPath());
+        Class<?> big = new ClassLoader() {
+            Class<?> define() {
+                return defineClass("com.thoughtworks.paranamer.generator.Big", bytes, 0, bytes.length);
+            }
+        }.define();
+        String joined = (String) big.getField("__PARANAMER_DATA").get(null)
+                + big.getField("__PARANAMER_DATA_1").get(null)
+                + big.getField("__PARANAMER_DATA_2").get(null);
+        Assert.assertEquals(data.toString(), joined);
+        Assert.assertEquals(65535, ((String) big.getField("__PARANAMER_DATA").get(null)).length());
+    }
+
+    @Test
+    public void testEnhancingAgainLeavesTheClassFileAlone() throws Exception {
+        for (Enhancer enhancer : new Enhancer[] {new Enhancer(), new Enhancer.MethodParameters()}) {
+            ClassWriter cw = new ClassWriter(0);
+            cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC + Opcodes.ACC_ABSTRACT, "Again", null, "java/lang/Object", null);
+            cw.visitMethod(Opcodes.ACC_PUBLIC + Opcodes.ACC_ABSTRACT, "foo", "(I)V", null, null).visitEnd();
+            cw.visitEnd();
+            File classFile = new File(Files.createTempDirectory("again").toFile(), "Again.class");
+            Files.write(classFile.toPath(), cw.toByteArray());
+
+            enhancer.enhance(classFile, "foo int number \n");
+            byte[] enhanced = Files.readAllBytes(classFile.toPath());
+            Assert.assertTrue(classFile.setLastModified(1000000000000L));
+
+            enhancer.enhance(classFile, "foo int number \n");
+            Assert.assertEquals(1000000000000L, classFile.lastModified());
+            Assert.assertArrayEquals(enhanced, Files.readAllBytes(classFile.toPath()));
+            Assert.assertEquals(1, enhancer.getRewritten());
+            Assert.assertEquals(1, enhancer.getSkipped());
+        }
+    }
+
+    @Test
+    public void testClassesAreEnhancedInParallel() throws Exception {
+        File dir = Files.createTempDirectory("parallel").toFile();
+        List<File> classFiles = new ArrayList<File>();
+        List<String> data = new ArrayList<String>();
+        for (int i = 0; i < 20; i++) {
+            ClassWriter cw = new ClassWriter(0);
+            cw.visit(Opcodes.V1_8, Opcodes.ACC_PUBLIC, "Parallel" + i, null, "java/lang/Object", null);
+            cw.visitEnd();
+            File classFile = new File(dir, "Parallel" + i + ".class");
+            Files.write(classFile.toPath(), cw.toByteArray());
+            classFiles.add(classFile);
+            data.add("method" + i + " int number \n");
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            new Enhancer().enhance(classFiles, data, pool);
+        } finally {
+            pool.shutdown();
+        }
+
+        ClassLoader loader = new URLClassLoader(new URL[] {dir.toURI().toURL()}, null);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(data.get(i), loader.loadClass("Parallel" + i).getField("__PARANAMER_DATA").get(null));
+        }
+        // the temporary files the classes were written to are all gone
+        Assert.assertEquals(20, dir.list().length);
+    }
+
+    @Test
+    public void testIncrementalGenerationOnlyRedoesWhatChanged() throws Exception {
+        File sources = Files.createTempDirectory("sources").toFile();
+        File classes = Files.createTempDirectory("classes").toFile();
+        File state = new File(Files.createTempDirectory("target").toFile(), "paranamer/state.properties");
+        File a = writeSource(sources, "A", "public class A { public void a(int first) {} }");
+        File b = writeSource(sources, "B", "public class B { public void b(A second) {} public static class C { public C(B third) {} } }");
+        compile(classes, a, b);
+        QdoxParanamerGenerator generator = new QdoxParanamerGenerator();
+
+        Assert.assertEquals(3, generator.processSourcePath(sources.getPath(), classes.getPath(), state));
+        Assert.assertTrue(state.exists());
+        Assert.assertTrue(generator.hasChangedNames());
+        Assert.assertEquals(0, generator.processSourcePath(sources.getPath(), classes.getPath(), state));
+        Assert.assertFalse(generator.hasChangedNames());
+
+        // a change that does not change the names, before A is compiled again
+        writeSource(sources, "A", "public class A { public void a(int first) { System.out.println(first); } }");
+        a.setLastModified(a.lastModified() + 2000);
+        Assert.assertEquals(0, generator.processSourcePath(sources.getPath(), classes.getPath(), state));
+
+        // then the class written again by the compiler is enhanced again
+        compile(classes, a);
+        Assert.assertEquals(1, generator.processSourcePath(sources.getPath(), classes.getPath(), state));
+        Assert.assertEquals("a int first \n", getData(classes, "A"));
+        Assert.assertFalse(generator.hasChangedNames());
+
+        // a change to the names of C, which is compiled again along with B
+        writeSource(sources, "B", "public class B { public void b(A second) {} public static class C { public C(B renamed) {} } }");
+        b.setLastModified(b.lastModified() + 4000);
+        compile(classes, b);
+        Assert.assertEquals(2, generator.processSourcePath(sources.getPath(), classes.getPath(), state));
+        Assert.assertTrue(generator.hasChangedNames());
+        Assert.assertEquals(0, generator.processSourcePath(sources.getPath(), classes.getPath(), state));
+        Assert.assertFalse(generator.hasChangedNames());
+        Assert.assertEquals("<init> B renamed \n", getData(classes, "B$C"));
+        Assert.assertEquals("b A second \n", getData(classes, "B"));
+    }
+
+    private static File writeSource(File sources, String className, String source) throws IOException {
+        File file = new File(sources, className + ".java");
+        Files.write(file.toPath(), source.getBytes("UTF-8"));
+        return file;
+    }
+
+    private static void compile(File classes, File... sources) {
+        List<String> arguments = new ArrayList<String>(Arrays.asList("-d", classes.getPath(), "-cp", classes.getPath()));
+        for (File source : sources) {
+            arguments.add(source.getPath());
+        }
+        Assert.assertEquals(0, ToolProvider.getSystemJavaCompiler().run(null, null, null, arguments.toArray(new String[0])));
+    }
+
+    private static String getData(File classes, String className) throws Exception {
+        ClassLoader loader = new URLClassLoader(new URL[] {classes.toURI().toURL()}, null);
+        return (String) loader.loadClass(className).getField("__PARANAMER_DATA").get(null);
+    }
+
+    @Test
+    public void testIndexOfAllClasses() throws Exception {
+        File output = File.createTempFile("index", "");
+        output.delete();
+        new QdoxParanamerGenerator().writeIndex(root + "/src/test", output.getPath());
+
+        DataInputStream data = new DataInputStream(new ByteArrayInputStream(
+                Files.readAllBytes(new File(output, QdoxParanamerGenerator.INDEX_RESOURCE).toPath())));
+        Assert.assertEquals(0x504E4958, data.readInt());
+        Assert.assertEquals(1, data.readInt());
+        int count = data.readInt();
+        for (int i = 0; i < count; i++) {
+            data.readInt();
+        }
+        List<String> keys = new ArrayList<String>();
+        List<String> names = new ArrayList<String>();
+        for (int i = 0; i < count; i++) {
+            keys.add(data.readUTF());
+            names.add(data.readUTF());
+        }
+        List<String> sorted = new ArrayList<String>(keys);
+        Collections.sort(sorted);
+        Assert.assertEquals(sorted, keys);
+        Assert.assertEquals("map", names.get(keys.indexOf("com.thoughtworks.paranamer.generator.Elephant setMap java.util.Map")));
+        Assert.assertEquals("number", names.get(keys.indexOf("com.thoughtworks.paranamer.generator.Monkey$Banana bananaMethod int")));
+    }
+
+    @Test
+    public void testParanamerClassOfAllClasses() throws Exception {
+        File output = File.createTempFile("generated", "");
+        output.delete();
+        new QdoxParanamerGenerator().writeParanamerClass(root + "/src/test", output.getPath(), "com.example.ExampleParanamer");
+
+        Assert.assertEquals(Collections.singletonList("com.example.ExampleParanamer"),
+                Files.readAllLines(new File(output, "META-INF/services/com.thoughtworks.paranamer.Paranamer").toPath()));
+        ClassReader reader = new ClassReader(Files.readAllBytes(new File(output, "com/example/ExampleParanamer.class").toPath()));
+        Assert.assertEquals("com/thoughtworks/paranamer/GeneratedParanamer", reader.getSuperName());
+        final List<Object> constants = new ArrayList<Object>();
+        reader.accept(new ClassVisitor(Opcodes.ASM9) {
+            public MethodVisitor visitMethod(int access, String name, String descriptor, String signature, String[] exceptions) {
+                return new MethodVisitor(Opcodes.ASM9) {
+                    public void visitLdcInsn(Object value) {
+                        constants.add(value);
+                    }
+                };
+            }
+        }, 0);
+        int at = Collections.indexOfSubList(constants, Arrays.asList("com.thoughtworks.paranamer.generator.Elephant", "setMap", "java.util.Map", "map"));
+        Assert.assertTrue(constants.toString(), at >= 0);
+    }
+
     private static class MyClassLoader extends ClassLoader {
         public Class<?> defineEnhancerClass(byte[] bytes, int length) {
             return defineClass("com.thoughtworks.paranamer.generator.Elephant", bytes, 0, bytes.length);
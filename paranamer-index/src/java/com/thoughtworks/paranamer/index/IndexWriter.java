@@ -0,0 +1,122 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+package com.thoughtworks.paranamer.index;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds the <code>META-INF/paranamer/index.bin</code> that IndexParanamer reads. The index is a
+ * table of "className methodName paramTypes" keys, sorted by their UTF-8 bytes so that they can be
+ * binary searched, and the parameter names of each. It starts with the ints 0x504E4958 ("PNIX"), the
+ * version (1) and the number of keys, then the offset of each key from the start of the file. At each
+ * offset are the key and then the comma separated names, each as an unsigned short length and that
+ * many bytes of UTF-8. Ints and shorts are big-endian.
+ * <p>
+ * It is in a module of its own, with no dependencies, so that the generators and the annotation
+ * processor in paranamer-apt write the index with it, and IndexParanamer reads it with the same
+ * constants, without any of them bringing QDox or ASM along.
+ * </p>
+ */
+public class IndexWriter {
+
+    public static final String INDEX_RESOURCE = "META-INF/paranamer/index.bin";
+
+    public static final int MAGIC = 0x504E4958; // "PNIX"
+    public static final int VERSION = 1;
+
+    private final TreeMap<byte[], byte[]> entries = new TreeMap<byte[], byte[]>(new Comparator<byte[]>() {
+        public int compare(byte[] o1, byte[] o2) {
+            int length = Math.min(o1.length, o2.length);
+            for (int i = 0; i < length; i++) {
+                int diff = (o1[i] & 0xFF) - (o2[i] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            return o1.length - o2.length;
+        }
+    });
+
+    /**
+     * Adds the names of a constructor or method, unless the same one was added before.
+     * @param className the binary name of the class, like com.example.Outer$Inner
+     * @param methodName the name of the method, or &lt;init&gt; for a constructor
+     * @param paramTypes the comma separated parameter types, as LegacyParanamer names them
+     * @param paramNames the comma separated parameter names
+     */
+    public void add(String className, String methodName, String paramTypes, String paramNames) {
+        byte[] key = (className + " " + methodName + " " + paramTypes).getBytes(StandardCharsets.UTF_8);
+        if (!entries.containsKey(key)) {
+            entries.put(key, paramNames.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * @param os where the index goes; it is not closed
+     * @throws IOException if a key or its names are too long for the index, or could not be written
+     */
+    public void writeTo(OutputStream os) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        int offset = 12 + 4 * entries.size();
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(entries.size());
+        for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+            data.writeInt(offset);
+            offset += 4 + entry.getKey().length + entry.getValue().length;
+        }
+        for (Map.Entry<byte[], byte[]> entry : entries.entrySet()) {
+            writeBytes(data, entry.getKey());
+            writeBytes(data, entry.getValue());
+        }
+        data.flush();
+        bytes.writeTo(os);
+    }
+
+    private static void writeBytes(DataOutputStream data, byte[] bytes) throws IOException {
+        if (bytes.length > 0xFFFF) {
+            throw new IOException("too long for the index: " + new String(bytes, StandardCharsets.UTF_8));
+        }
+        data.writeShort(bytes.length);
+        data.write(bytes);
+    }
+}
@@ -38,10 +38,12 @@ import org.apache.maven.plugins.annotations.Mojo;
 import org.apache.maven.plugins.annotations.Parameter;
 import org.apache.maven.plugins.annotations.ResolutionScope;
 
-import com.thoughtworks.paranamer.generator.ParanamerGenerator;
+import com.thoughtworks.paranamer.generator.BytecodeParanamerGenerator;
 import com.thoughtworks.paranamer.generator.QdoxParanamerGenerator;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
 
 
 /**
@@ -80,10 +82,93 @@ public class ParanamerGeneratorMojo extends AbstractMojo {
     @Parameter(defaultValue = "${project.build.outputDirectory}", required = true)
     protected String outputDirectory;
 
+    /**
+     * Whether to generate the compact v2 form of the parameter names data, rather than v1 lines.
+     * It is smaller, and has no size limit, but needs a LegacyParanamer that reads v2.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean compact;
+
+    /**
+     * Whether to write the names into the standard MethodParameters attribute of each method,
+     * as javac's -parameters does, rather than a <code>__PARANAMER_DATA</code> field. Then
+     * DefaultParanamer, or anything using java.lang.reflect.Parameter, has them.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean methodParameters;
+
+    /**
+     * Whether to take the names from the compiled classes in the output directory, rather than
+     * by parsing the source. The classes need to have been compiled with debug info (as they are
+     * by default) or with -parameters.
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean fromClasses;
+
+    /**
+     * Whether to add a <code>__PARANAMER_DATA</code> field (or MethodParameters attributes) to each class
+     */
+    @Parameter(defaultValue = "true")
+    protected boolean fields = true;
+
+    /**
+     * Whether to write the parameter names of all the classes to META-INF/paranamer/index.bin
+     * in the output directory, for IndexParanamer
+     */
+    @Parameter(defaultValue = "false")
+    protected boolean index;
+
+    /**
+     * Whether to only parse the sources that changed since the last build, and only rewrite the
+     * classes whose parameter names changed or that were compiled again. What was done is kept in
+     * the state file. With fields, the index and the Paranamer class are only made again when some
+     * parameter names have changed, or when they are not there.
+     */
+    @Parameter(defaultValue = "true")
+    protected boolean incremental = true;
+
+    /**
+     * Where the state of incremental generation is kept between builds
+     */
+    @Parameter(defaultValue = "${project.build.directory}/paranamer/state.properties")
+    protected File stateFile;
+
+    /**
+     * How many classes to enhance at once. The default, 1, enhances them one after another, as
+     * earlier versions did. 0 runs on the JVM's common ForkJoinPool, which inside Maven is shared
+     * with the rest of the build (other plugins, and other modules with -T), rather than on a pool
+     * of this goal's own.
+     */
+    @Parameter(defaultValue = "1")
+    protected int threads = 1;
+
+    /**
+     * If set, the name of a Paranamer class to generate, like com.example.ExampleParanamer, with
+     * the parameter names of all the classes compiled in. It is registered as a service, for
+     * ServiceLoaderParanamer to find.
+     */
+    @Parameter
+    protected String paranamerClass;
+
     /**
      * The Paranamer generator
      */
-    private ParanamerGenerator generator = new QdoxParanamerGenerator();
+    protected QdoxParanamerGenerator makeGenerator() {
+        if (methodParameters) {
+            return new QdoxParanamerGenerator.MethodParameters();
+        }
+        return compact ? new QdoxParanamerGenerator.Compact() : new QdoxParanamerGenerator();
+    }
+
+    /**
+     * The Paranamer generator, when the names are taken from the compiled classes
+     */
+    protected BytecodeParanamerGenerator makeBytecodeGenerator(ForkJoinPool pool) {
+        if (methodParameters) {
+            return new BytecodeParanamerGenerator.MethodParameters(pool);
+        }
+        return compact ? new BytecodeParanamerGenerator.Compact(pool) : new BytecodeParanamerGenerator(pool);
+    }
 
     public void execute() throws MojoExecutionException, MojoFailureException {
     	if(skip()) {
@@ -92,10 +177,55 @@ public class ParanamerGeneratorMojo extends AbstractMojo {
     	}
         getLog().info("Generating parameter names from " + sourceDirectory + " to " + outputDirectory);
         try {
-            generator.processSourcePath(sourceDirectory, outputDirectory);
+            if (fromClasses) {
+                ForkJoinPool pool = threads == 0 ? ForkJoinPool.commonPool() : new ForkJoinPool(threads);
+                try {
+                    BytecodeParanamerGenerator generator = makeBytecodeGenerator(pool);
+                    if (fields) {
+                        generator.processSourcePath(outputDirectory, outputDirectory);
+                        logCounts(generator.getRewritten(), generator.getSkipped());
+                    }
+                    if (index) {
+                        generator.writeIndex(outputDirectory, outputDirectory);
+                    }
+                    if (paranamerClass != null) {
+                        generator.writeParanamerClass(outputDirectory, outputDirectory, paranamerClass);
+                    }
+                } finally {
+                    if (pool != ForkJoinPool.commonPool()) {
+                        pool.shutdown();
+                    }
+                }
+            } else {
+                QdoxParanamerGenerator generator = makeGenerator();
+                generator.setThreads(threads);
+                boolean changedNames = true;
+                if (fields && incremental && stateFile != null) {
+                    if (generator.processSourcePath(sourceDirectory, outputDirectory, stateFile) == 0) {
+                        getLog().info("Parameter names are up to date");
+                    } else {
+                        logCounts(generator.getRewritten(), generator.getSkipped());
+                    }
+                    changedNames = generator.hasChangedNames();
+                } else if (fields) {
+                    generator.processSourcePath(sourceDirectory, outputDirectory);
+                    logCounts(generator.getRewritten(), generator.getSkipped());
+                }
+                if (index && (changedNames || !new File(outputDirectory, QdoxParanamerGenerator.INDEX_RESOURCE).exists())) {
+                    generator.writeIndex(sourceDirectory, outputDirectory);
+                }
+                if (paranamerClass != null
+                        && (changedNames || !new File(outputDirectory, paranamerClass.replace('.', File.separatorChar) + ".class").exists())) {
+                    generator.writeParanamerClass(sourceDirectory, outputDirectory, paranamerClass);
+                }
+            }
         } catch (IOException e) {
             throw new MojoExecutionException("Failed to generate parameter names from "+sourceDirectory, e);
         }
     }
 
+    private void logCounts(int rewritten, int skipped) {
+        getLog().info("Rewrote " + rewritten + " classes, and left " + skipped + " that had nothing to add");
+    }
+
 }
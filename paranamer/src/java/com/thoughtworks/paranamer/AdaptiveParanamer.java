@@ -32,6 +32,18 @@ package com.thoughtworks.paranamer;
 
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Executable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 /**
  * Implementation of Paranamer which chooses between a series of Paranamer instances depending on which can supply data.
@@ -46,16 +58,30 @@ public class AdaptiveParanamer implements Paranamer {
         + "com.thoughtworks.paranamer.AdaptiveParanamer AdaptiveParanamer com.thoughtworks.paranamer.Paranamer,com.thoughtworks.paranamer.Paranamer delegate,fallback\n"
         + "com.thoughtworks.paranamer.AdaptiveParanamer AdaptiveParanamer com.thoughtworks.paranamer.Paranamer,com.thoughtworks.paranamer.Paranamer,com.thoughtworks.paranamer.Paranamer delegate,fallback,reserve\n"
         + "com.thoughtworks.paranamer.AdaptiveParanamer AdaptiveParanamer com.thoughtworks.paranamer.Paranamer[] paranamers\n"
+        + "com.thoughtworks.paranamer.AdaptiveParanamer AdaptiveParanamer boolean,com.thoughtworks.paranamer.Paranamer[] rememberPerClass,paranamers\n"
+        + "com.thoughtworks.paranamer.AdaptiveParanamer AdaptiveParanamer java.util.concurrent.Executor,com.thoughtworks.paranamer.Paranamer[] executor,paranamers\n"
         + "com.thoughtworks.paranamer.AdaptiveParanamer lookupParameterNames java.lang.AccessibleObject methodOrConstructor \n"
-        + "com.thoughtworks.paranamer.AdaptiveParanamer lookupParameterNames java.lang.AccessibleObject,boolean methodOrCtor,throwExceptionIfMissing \n";
+        + "com.thoughtworks.paranamer.AdaptiveParanamer lookupParameterNames java.lang.AccessibleObject,boolean methodOrCtor,throwExceptionIfMissing \n"
+        + "com.thoughtworks.paranamer.AdaptiveParanamer lookupParameterNames java.lang.AccessibleObject,boolean,java.time.Duration methodOrCtor,throwExceptionIfMissing,budget \n";
 
     private final Paranamer[] paranamers;
 
     /**
-     * Use LegacyParanamer ahead of BytecodeReadingParanamer
+     * The paranamer that last found names for a class, if remembering them.
+     */
+    private final ClassValue<Choice> choices;
+
+    /**
+     * Where the paranamers are run concurrently, if they are.
+     */
+    private final Executor executor;
+
+    /**
+     * Use DefaultParanamer (on Java 9 or above), then BytecodeReadingParanamer, then LegacyParanamer,
+     * remembering which of them has names for each class.
      */
     public AdaptiveParanamer() {
-        this(makeArrayOfParanamers());
+        this(true, makeArrayOfParanamers());
     }
 
     private static Paranamer[] makeArrayOfParanamers() {
@@ -73,7 +99,45 @@ public class AdaptiveParanamer implements Paranamer {
      * @param paranamers the paranamers in question
      */
     public AdaptiveParanamer(Paranamer... paranamers) {
+        this(false, paranamers);
+    }
+
+    /**
+     * Prioritize a series of Paranamers, optionally remembering, per declaring class, which
+     * of them last found names. Lookups for a class then go to that one first, and only
+     * go through the others if it finds nothing. That suits paranamers that either have
+     * names for the whole of a class or for none of it, like the default ones: whether a class
+     * was compiled with -parameters or -g, or has generated data. It does not suit paranamers
+     * like AnnotationParanamer, that may have names for some methods of a class and not others,
+     * ahead of others in the series.
+     * @param rememberPerClass whether to remember which paranamer has names for a class
+     * @param paranamers the paranamers in question
+     */
+    public AdaptiveParanamer(boolean rememberPerClass, Paranamer... paranamers) {
+        this(rememberPerClass, null, paranamers);
+    }
+
+    /**
+     * Prioritize a series of Paranamers, but run them concurrently, all but the first on the given
+     * executor. The names from the first paranamer to have them are returned as soon as those ahead
+     * of it have all come back without names, and the lookups of those after it are cancelled.
+     * So a lookup takes about as long as the slowest paranamer up to the one with the names,
+     * rather than all of them together. Worth it when some are slow, like a JavadocParanamer on a URL.
+     * @param executor where to run the paranamers (a virtual thread per task executor suits)
+     * @param paranamers the paranamers in question
+     */
+    public AdaptiveParanamer(Executor executor, Paranamer... paranamers) {
+        this(false, executor, paranamers);
+    }
+
+    private AdaptiveParanamer(boolean rememberPerClass, Executor executor, Paranamer[] paranamers) {
         this.paranamers = paranamers;
+        this.executor = executor;
+        this.choices = rememberPerClass ? new ClassValue<Choice>() {
+            protected Choice computeValue(Class<?> type) {
+                return new Choice();
+            }
+        } : null;
     }
 
     public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
@@ -81,14 +145,165 @@ public class AdaptiveParanamer implements Paranamer {
     }
 
     public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+        return lookup(methodOrCtor, throwExceptionIfMissing, false, 0);
+    }
+
+    /**
+     * Each paranamer is given what is left of the budget when its turn comes. Once it has run out,
+     * the rest are not asked (or waited for, when running concurrently).
+     */
+    @Override
+    public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing, Duration budget) {
+        return lookup(methodOrCtor, throwExceptionIfMissing, true, System.nanoTime() + budget.toNanos());
+    }
+
+    private String[] lookup(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing, boolean timed, long deadline) {
+        if (executor != null) {
+            return lookupConcurrently(methodOrCtor, throwExceptionIfMissing, timed, deadline);
+        }
+        if (choices == null) {
+            return lookupInTurn(methodOrCtor, throwExceptionIfMissing, -1, null, timed, deadline);
+        }
+        Choice choice = choices.get(((Executable) methodOrCtor).getDeclaringClass());
+        int chosen = choice.index;
+        if (chosen >= 0) {
+            String[] names = ask(paranamers[chosen], methodOrCtor, false, timed, deadline);
+            if (names != Paranamer.EMPTY_NAMES) {
+                return names;
+            }
+        }
+        return lookupInTurn(methodOrCtor, throwExceptionIfMissing, chosen, choice, timed, deadline);
+    }
+
+    private static String[] ask(Paranamer paranamer, AccessibleObject methodOrCtor, boolean throwExceptionIfMissing, boolean timed, long deadline) {
+        if (!timed) {
+            return paranamer.lookupParameterNames(methodOrCtor, throwExceptionIfMissing);
+        }
+        long remaining = deadline - System.nanoTime();
+        if (remaining <= 0) {
+            return timedOut(methodOrCtor, throwExceptionIfMissing);
+        }
+        return paranamer.lookupParameterNames(methodOrCtor, throwExceptionIfMissing, Duration.ofNanos(remaining));
+    }
+
+    private static String[] timedOut(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+        if (throwExceptionIfMissing) {
+            throw new ParameterNamesNotFoundException(methodOrCtor.toString(), new TimeoutException("lookup budget used up"));
+        }
+        return Paranamer.EMPTY_NAMES;
+    }
+
+    private String[] lookupInTurn(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing, int alreadyAsked, Choice choice, boolean timed, long deadline) {
         for (int i = 0; i < paranamers.length; i++) {
+            boolean last = i + 1 == paranamers.length;
+            // the last one is asked again if need be, so that it can throw
+            if (i == alreadyAsked && !(last && throwExceptionIfMissing)) {
+                continue;
+            }
             Paranamer paranamer = paranamers[i];
-            String[] names = paranamer.lookupParameterNames(methodOrCtor, i+1 < paranamers.length ? false : throwExceptionIfMissing);
+            String[] names = ask(paranamer, methodOrCtor, last ? throwExceptionIfMissing : false, timed, deadline);
             if (names != Paranamer.EMPTY_NAMES) {
+                if (choice != null) {
+                    choice.index = i;
+                }
                 return names;
             }
         }
         return Paranamer.EMPTY_NAMES;
     }
 
-}
\ No newline at end of file
+    private String[] lookupConcurrently(final AccessibleObject methodOrCtor, boolean throwExceptionIfMissing, final boolean timed, final long deadline) {
+        List<FutureTask<String[]>> tasks = new ArrayList<FutureTask<String[]>>(paranamers.length);
+        for (int i = 0; i < paranamers.length; i++) {
+            final Paranamer paranamer = paranamers[i];
+            final boolean throwIfMissing = i + 1 == paranamers.length && throwExceptionIfMissing;
+            tasks.add(new FutureTask<String[]>(new Callable<String[]>() {
+                public String[] call() {
+                    return ask(paranamer, methodOrCtor, throwIfMissing, timed, deadline);
+                }
+            }));
+        }
+        try {
+            for (int i = 1; i < tasks.size(); i++) {
+                try {
+                    executor.execute(tasks.get(i));
+                } catch (RejectedExecutionException e) {
+                    // it will be run when its turn comes
+                }
+            }
+            for (FutureTask<String[]> task : tasks) {
+                // a no-op if it has been run already, or is running
+                task.run();
+                String[] names = getUninterruptibly(task, timed, deadline);
+                if (names == null) {
+                    return timedOut(methodOrCtor, throwExceptionIfMissing);
+                }
+                if (names != Paranamer.EMPTY_NAMES) {
+                    return names;
+                }
+            }
+            return Paranamer.EMPTY_NAMES;
+        } finally {
+            for (FutureTask<String[]> task : tasks) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * @return the names, or null if the deadline went by first
+     */
+    private static String[] getUninterruptibly(FutureTask<String[]> task, boolean timed, long deadline) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    if (!timed) {
+                        return task.get();
+                    }
+                    return task.get(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                } catch (TimeoutException e) {
+                    return null;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw (RuntimeException) cause;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Asks each paranamer in turn for the whole class, for as long as some declared methods or
+     * constructors are still without names. Names from earlier paranamers take priority.
+     */
+    @Override
+    public Map<AccessibleObject, String[]> lookupAllParameterNames(Class<?> declaringClass) {
+        int declared = declaringClass.getDeclaredConstructors().length + declaringClass.getDeclaredMethods().length;
+        Map<AccessibleObject, String[]> allNames = new HashMap<AccessibleObject, String[]>();
+        for (Paranamer paranamer : paranamers) {
+            for (Map.Entry<AccessibleObject, String[]> entry : paranamer.lookupAllParameterNames(declaringClass).entrySet()) {
+                if (!allNames.containsKey(entry.getKey())) {
+                    allNames.put(entry.getKey(), entry.getValue());
+                }
+            }
+            if (allNames.size() == declared) {
+                break;
+            }
+        }
+        return allNames;
+    }
+
+    private static class Choice {
+        private volatile int index = -1;
+    }
+
+}
@@ -35,6 +35,8 @@ import java.lang.annotation.Annotation;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Implementation of Paranamer that uses @Named annotation of JSR 330.
@@ -68,46 +70,17 @@ public class AnnotationParanamer implements Paranamer {
         Class<?>[] types = executable.getParameterTypes();
         Class<?> declaringClass = executable.getDeclaringClass();
         String name = executable instanceof Constructor ? "<init>" : executable.getName();
-        Annotation[][] anns = executable.getParameterAnnotations();
 
         if (types.length == 0) {
             return EMPTY_NAMES;
         }
 
-        
-        final String[] names = new String[types.length];
-        boolean allDone = true;
-        for (int i = 0; i < names.length; i++) {
-            for (int j = 0; j < anns[i].length; j++) {
-                Annotation ann = anns[i][j];
-                if (isNamed(ann)) {
-                    names[i] = getNamedValue(ann);
-                    break;
-                }
-            }
-            if (names[i] == null) {
-                allDone = false;
-            }
-
-        }
+        final String[] names = getNamedValues(executable);
+        boolean allDone = !hasBlanks(names);
 
         // fill in blanks from fallback if possible.
         if (!allDone) {
-            allDone = true;
-            String[] altNames = fallback.lookupParameterNames(methodOrCtor, false);
-            if (altNames.length > 0) {
-                for (int i = 0; i < names.length; i++) {
-                    if (names[i] == null) {
-                        if (altNames[i] != null) {
-                            names[i] = altNames[i];
-                        } else {
-                            allDone = false;
-                        }
-                    }
-                }
-            } else {
-                allDone = false;                
-            }
+            allDone = fillBlanks(names, fallback.lookupParameterNames(methodOrCtor, false));
         }
 
         // error if applicable
@@ -122,6 +95,76 @@ public class AnnotationParanamer implements Paranamer {
         return names;
     }
 
+    /**
+     * Reads the annotations of each declared method and constructor, and asks the fallback
+     * for the names of the whole class at most once.
+     */
+    @Override
+    public Map<AccessibleObject, String[]> lookupAllParameterNames(Class<?> declaringClass) {
+        Map<AccessibleObject, String[]> allNames = new HashMap<AccessibleObject, String[]>();
+        Map<AccessibleObject, String[]> fallbackNames = null;
+        for (Executable[] executables : new Executable[][] {declaringClass.getDeclaredConstructors(), declaringClass.getDeclaredMethods()}) {
+            for (Executable executable : executables) {
+                String[] names = getNamedValues(executable);
+                if (hasBlanks(names)) {
+                    if (fallbackNames == null) {
+                        fallbackNames = fallback.lookupAllParameterNames(declaringClass);
+                    }
+                    String[] altNames = fallbackNames.get(executable);
+                    if (altNames == null || !fillBlanks(names, altNames)) {
+                        continue;
+                    }
+                }
+                allNames.put(executable, names);
+            }
+        }
+        return allNames;
+    }
+
+    private String[] getNamedValues(Executable executable) {
+        Annotation[][] anns = executable.getParameterAnnotations();
+        final String[] names = new String[executable.getParameterCount()];
+        for (int i = 0; i < names.length; i++) {
+            for (int j = 0; j < anns[i].length; j++) {
+                Annotation ann = anns[i][j];
+                if (isNamed(ann)) {
+                    names[i] = getNamedValue(ann);
+                    break;
+                }
+            }
+        }
+        return names;
+    }
+
+    private static boolean hasBlanks(String[] names) {
+        for (String name : names) {
+            if (name == null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return whether all the blanks could be filled
+     */
+    private static boolean fillBlanks(String[] names, String[] altNames) {
+        if (altNames.length == 0) {
+            return false;
+        }
+        boolean allDone = true;
+        for (int i = 0; i < names.length; i++) {
+            if (names[i] == null) {
+                if (altNames[i] != null) {
+                    names[i] = altNames[i];
+                } else {
+                    allDone = false;
+                }
+            }
+        }
+        return allDone;
+    }
+
     /**
      * Override this if you want something other than JSR 330's Named annotation.
      *
@@ -31,14 +31,29 @@
 
 package com.thoughtworks.paranamer;
 
+import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Modifier;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.jar.JarEntry;
 
 
 /**
@@ -65,6 +80,42 @@ public class BytecodeReadingParanamer implements Paranamer {
         }
     };
 
+    /**
+     * Marks a method that is present in the class file, but has no usable debug information.
+     */
+    private static final String[] NO_DEBUG_INFO = new String[0];
+
+    /**
+     * Class files at least this big are memory-mapped, smaller ones are cheaper to read.
+     */
+    private static final long MAPPING_THRESHOLD = 64 * 1024;
+
+    private final ClassValue<FutureTask<ClassTable>> classTables;
+
+    public BytecodeReadingParanamer() {
+        this(false);
+    }
+
+    /**
+     * @param wholeClass if true, the first lookup for a class reads the parameter names of all of its
+     *                   methods and constructors in one pass over the class file, and keeps them in a
+     *                   per-class table. Later lookups for methods of the same class are answered from
+     *                   that table without reading the class again. Threads that look up methods
+     *                   of a class while it is being read wait for its table, rather than reading it too.
+     */
+    public BytecodeReadingParanamer(boolean wholeClass) {
+        this.classTables = wholeClass ? new ClassValue<FutureTask<ClassTable>>() {
+            protected FutureTask<ClassTable> computeValue(final Class<?> type) {
+                // racing threads may each make a task, but ClassValue hands them all the same one
+                return new FutureTask<ClassTable>(new Callable<ClassTable>() {
+                    public ClassTable call() {
+                        return readClassTable(type);
+                    }
+                });
+            }
+        } : null;
+    }
+
     public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
         return lookupParameterNames(methodOrConstructor, true);
     }
@@ -80,51 +131,317 @@ public class BytecodeReadingParanamer implements Paranamer {
         if (types.length == 0) {
             return EMPTY_NAMES;
         }
-        InputStream byteCodeStream = getClassAsStream(declaringClass);
-        if (byteCodeStream == null) {
+        if (classTables != null) {
+            return lookupInClassTable(declaringClass, name, types, throwExceptionIfMissing);
+        }
+        ByteBuffer byteCode;
+        try {
+            byteCode = getClassBytes(declaringClass);
+        } catch (IOException e) {
+            if (throwExceptionIfMissing) {
+                throw new ParameterNamesNotFoundException("IoException while reading class bytes", e);
+            } else {
+                return Paranamer.EMPTY_NAMES;
+            }
+        }
+        if (byteCode == null) {
             if (throwExceptionIfMissing) {
                 throw new ParameterNamesNotFoundException("Unable to get class bytes");
             } else {
                 return Paranamer.EMPTY_NAMES;
             }
         }
-        try {
-            ClassReader reader = new ClassReader(byteCodeStream);
-            TypeCollector visitor = new TypeCollector(name, types, throwExceptionIfMissing);
-            reader.accept(visitor);
-            String[] parameterNamesForMethod = visitor.getParameterNamesForMethod();
-            return parameterNamesForMethod;
-        } catch (IOException e) {
+        ClassReader reader = new ClassReader(byteCode);
+        TypeCollector visitor = new TypeCollector(name, types, throwExceptionIfMissing);
+        reader.accept(visitor);
+        return visitor.getParameterNamesForMethod();
+    }
+
+    /**
+     * Reads the class file once, whether or not this instance is in whole-class mode.
+     */
+    @Override
+    public Map<AccessibleObject, String[]> lookupAllParameterNames(Class<?> declaringClass) {
+        Map<AccessibleObject, String[]> allNames = new HashMap<AccessibleObject, String[]>();
+        Map<String, String[]> namesByDescriptor = null;
+        for (Executable[] executables : new Executable[][] {declaringClass.getDeclaredConstructors(), declaringClass.getDeclaredMethods()}) {
+            for (Executable executable : executables) {
+                Class<?>[] types = executable.getParameterTypes();
+                if (types.length == 0) {
+                    allNames.put(executable, EMPTY_NAMES);
+                    continue;
+                }
+                if (namesByDescriptor == null) {
+                    namesByDescriptor = getNamesByDescriptor(declaringClass);
+                }
+                String name = executable instanceof Constructor ? "<init>" : executable.getName();
+                String[] names = namesByDescriptor.get(name + parameterDescriptor(types));
+                if (names != null && names != NO_DEBUG_INFO) {
+                    allNames.put(executable, names);
+                }
+            }
+        }
+        return allNames;
+    }
+
+    private Map<String, String[]> getNamesByDescriptor(Class<?> declaringClass) {
+        if (classTables == null) {
+            ClassTable table = readClassTable(declaringClass);
+            return table.names != null ? table.names : Collections.<String, String[]>emptyMap();
+        }
+        ClassTable table = getClassTable(declaringClass);
+        if (table.names == null) {
+            return Collections.emptyMap();
+        }
+        return table.names;
+    }
+
+    private String[] lookupInClassTable(Class<?> declaringClass, String name, Class<?>[] types, boolean throwExceptionIfMissing) {
+        ClassTable table = getClassTable(declaringClass);
+        if (table.names == null) {
             if (throwExceptionIfMissing) {
-                throw new ParameterNamesNotFoundException("IoException while reading class bytes", e);
+                throw new ParameterNamesNotFoundException(table.problem, table.cause);
+            } else {
+                return Paranamer.EMPTY_NAMES;
+            }
+        }
+        String[] names = table.names.get(name + parameterDescriptor(types));
+        if (names == null) {
+            return Paranamer.EMPTY_NAMES;
+        }
+        if (names == NO_DEBUG_INFO) {
+            if (throwExceptionIfMissing) {
+                throw new ParameterNamesNotFoundException("Parameter names not found for " + name);
             } else {
                 return Paranamer.EMPTY_NAMES;
             }
+        }
+        return names;
+    }
+
+    /**
+     * The first thread to ask for the table of a class reads the class, any others
+     * that ask at the same time wait for it. No lock is held other than the task's own.
+     */
+    private ClassTable getClassTable(Class<?> declaringClass) {
+        FutureTask<ClassTable> task = classTables.get(declaringClass);
+        task.run();
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    ClassTable table = task.get();
+                    if (table.cause != null) {
+                        // an I/O problem may be transient, so don't remember it
+                        classTables.remove(declaringClass);
+                    }
+                    return table;
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                } catch (ExecutionException e) {
+                    classTables.remove(declaringClass);
+                    Throwable cause = e.getCause();
+                    if (cause instanceof Error) {
+                        throw (Error) cause;
+                    }
+                    throw (RuntimeException) cause;
+                }
+            }
         } finally {
-            try {
-                byteCodeStream.close();
-            } catch (IOException e) {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private ClassTable readClassTable(Class<?> declaringClass) {
+        ByteBuffer byteCode;
+        try {
+            byteCode = getClassBytes(declaringClass);
+        } catch (IOException e) {
+            return new ClassTable("IoException while reading class bytes", e);
+        }
+        if (byteCode == null) {
+            return new ClassTable("Unable to get class bytes", null);
+        }
+        ClassReader reader = new ClassReader(byteCode);
+        ClassCollector visitor = new ClassCollector();
+        reader.accept(visitor);
+        return new ClassTable(visitor.getParameterNamesByDescriptor());
+    }
+
+    /**
+     * The JVM descriptor of a parameter list, without the return type, e.g. <code>(Ljava/lang/String;I)</code>
+     */
+    private static String parameterDescriptor(Class<?>[] types) {
+        StringBuilder sb = new StringBuilder().append('(');
+        for (Class<?> type : types) {
+            if (type.isPrimitive()) {
+                sb.append(primitives.get(type.getName()));
+            } else if (type.isArray()) {
+                sb.append(type.getName().replace('.', '/'));
+            } else {
+                sb.append('L').append(type.getName().replace('.', '/')).append(';');
             }
         }
+        return sb.append(')').toString();
     }
 
-    private InputStream getClassAsStream(Class<?> clazz) {
+    /**
+     * The number of local variable slots the parameters of a method descriptor take,
+     * longs and doubles taking two.
+     */
+    private static int parameterSlots(String desc) {
+        int slots = 0;
+        int i = 1;
+        while (desc.charAt(i) != ')') {
+            char c = desc.charAt(i);
+            slots += c == 'J' || c == 'D' ? 2 : 1;
+            while (desc.charAt(i) == '[') {
+                i++;
+            }
+            if (desc.charAt(i) == 'L') {
+                i = desc.indexOf(';', i);
+            }
+            i++;
+        }
+        return slots;
+    }
+
+    /**
+     * The bytes of the class file, or null if the class file can't be found. Class files in
+     * directories are read straight from a {@link FileChannel} (memory-mapped, if they are large),
+     * and entries of jars are read from the jar file the JDK keeps open for <code>jar:</code> URLs,
+     * into a buffer of the entry's size, rather than by growing a byte array a chunk at a time.
+     */
+    protected ByteBuffer getClassBytes(Class<?> clazz) throws IOException {
         ClassLoader classLoader = clazz.getClassLoader();
         if (classLoader == null) {
             classLoader = ClassLoader.getSystemClassLoader();
         }
-        return getClassAsStream(classLoader, clazz.getName());
+        String name = clazz.getName().replace('.', '/') + ".class";
+        URL url = classLoader.getResource(name);
+        if (url == null) {
+            url = BytecodeReadingParanamer.class.getResource(name);
+        }
+        if (url == null) {
+            return null;
+        }
+        if (url.getProtocol().equals("file")) {
+            return readFile(url);
+        }
+        URLConnection connection = url.openConnection();
+        if (connection instanceof JarURLConnection) {
+            JarURLConnection jarConnection = (JarURLConnection) connection;
+            JarEntry entry = jarConnection.getJarEntry();
+            return readFully(jarConnection.getJarFile().getInputStream(entry), entry.getSize());
+        }
+        return readFully(connection.getInputStream(), connection.getContentLengthLong());
+    }
+
+    private static ByteBuffer readFile(URL url) throws IOException {
+        Path path;
+        try {
+            path = Paths.get(url.toURI());
+        } catch (URISyntaxException e) {
+            path = new File(url.getPath()).toPath();
+        }
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size >= MAPPING_THRESHOLD) {
+                return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            }
+            ByteBuffer bytes = ByteBuffer.allocate((int) size);
+            while (bytes.hasRemaining() && channel.read(bytes) != -1) {
+            }
+            bytes.flip();
+            return bytes;
+        } finally {
+            channel.close();
+        }
+    }
+
+    private static ByteBuffer readFully(InputStream is, long size) throws IOException {
+        try {
+            byte[] b = new byte[size >= 0 ? (int) size : Math.max(is.available(), 1024)];
+            int len = 0;
+            while (true) {
+                if (len == b.length) {
+                    int last = is.read();
+                    if (last < 0) {
+                        break;
+                    }
+                    byte[] c = new byte[Math.max(b.length * 2, 1024)];
+                    System.arraycopy(b, 0, c, 0, len);
+                    c[len++] = (byte) last;
+                    b = c;
+                }
+                int n = is.read(b, len, b.length - len);
+                if (n == -1) {
+                    break;
+                }
+                len += n;
+            }
+            return ByteBuffer.wrap(b, 0, len);
+        } finally {
+            try {
+                is.close();
+            } catch (IOException e) {
+            }
+        }
     }
 
-    private InputStream getClassAsStream(ClassLoader classLoader, String className) {
-        String name = className.replace('.', '/') + ".class";
-        // better pre-cache all methods otherwise this content will be loaded
-        // multiple times
-        InputStream asStream = classLoader.getResourceAsStream(name);
-        if (asStream == null) {
-            asStream = BytecodeReadingParanamer.class.getResourceAsStream(name);
+    /**
+     * The parameter names of all methods and constructors of one class, keyed by
+     * method name plus parameter descriptor, or the reason why they could not be read.
+     */
+    private static class ClassTable {
+
+        private final Map<String, String[]> names;
+        private final String problem;
+        private final IOException cause;
+
+        private ClassTable(Map<String, String[]> names) {
+            this.names = names;
+            this.problem = null;
+            this.cause = null;
+        }
+
+        private ClassTable(String problem, IOException cause) {
+            this.names = null;
+            this.problem = problem;
+            this.cause = cause;
         }
-        return asStream;
+    }
+
+    /**
+     * Visits the methods of a class file.
+     */
+    private interface ClassVisitor {
+
+        /**
+         * @return the name of the only methods to visit, or null to visit them all.
+         */
+        String getMethodName();
+
+        /**
+         * @return the parameter descriptor, e.g. <code>(Ljava/lang/String;I)</code>, of the
+         * only method to visit, if a method name is given too.
+         */
+        String getParameterDescriptor();
+
+        /**
+         * @param desc the method descriptor, or for visitors that name the method
+         *             to visit, their own parameter descriptor.
+         */
+        MethodCollector visitMethod(int access, String name, String desc);
+
+        /**
+         * @return true if the rest of the methods need not be read.
+         */
+        boolean isDone();
+
     }
 
     /**
@@ -133,73 +450,42 @@ public class BytecodeReadingParanamer implements Paranamer {
      *
      * @author Guilherme Silveira
      */
-    private static class TypeCollector {
+    private static class TypeCollector implements ClassVisitor {
 
         private static final String COMMA = ",";
 
         private final String methodName;
 
-        private final Class<?>[] parameterTypes;
+        private final String parameterDescriptor;
         private final boolean throwExceptionIfMissing;
 
         private MethodCollector collector;
 
         private TypeCollector(String methodName, Class<?>[] parameterTypes, boolean throwExceptionIfMissing) {
             this.methodName = methodName;
-            this.parameterTypes = parameterTypes;
+            this.parameterDescriptor = parameterDescriptor(parameterTypes);
             this.throwExceptionIfMissing = throwExceptionIfMissing;
             this.collector = null;
         }
 
-        private MethodCollector visitMethod(int access, String name, String desc) {
-            // already found the method, skip any processing
-            if (collector != null) {
-                return null;
-            }
-            // not the same name
-            if (!name.equals(methodName)) {
-                return null;
-            }
-            Type[] argumentTypes = Type.getArgumentTypes(desc);
-            int longOrDoubleQuantity = 0;
-            for (Type t : argumentTypes) {
-                if (t.getClassName().equals("long")
-                        || t.getClassName().equals("double")) {
-                    longOrDoubleQuantity++;
-                }
-            }
-            int paramCount = argumentTypes.length;
-            // not the same quantity of parameters
-            if (paramCount != this.parameterTypes.length) {
-                return null;
-            }
-            for (int i = 0; i < argumentTypes.length; i++) {
-                if (!correctTypeName(argumentTypes, i).equals(
-                        this.parameterTypes[i].getName())) {
-                    return null;
-                }
-            }
-            this.collector = new MethodCollector((Modifier.isStatic(access) ? 0 : 1),
-                    argumentTypes.length + longOrDoubleQuantity);
-            return collector;
+        public String getMethodName() {
+            return methodName;
         }
 
-        private String correctTypeName(Type[] argumentTypes, int i) {
-            String s = argumentTypes[i].getClassName();
-            // array notation needs cleanup.
-            String braces = "";
-            while (s.endsWith("[]")) {
-                braces = braces + "[";
-                s = s.substring(0, s.length() - 2);
-            }
-            if (!braces.equals("")) {
-                if (primitives.containsKey(s)) {
-                    s = braces + primitives.get(s);
-                } else {
-                s = braces + "L" + s + ";";
-                }
-            }
-            return s;
+        public String getParameterDescriptor() {
+            return parameterDescriptor;
+        }
+
+        public boolean isDone() {
+            // the first matching method wins, the rest of the class is not read
+            return collector != null;
+        }
+
+        public MethodCollector visitMethod(int access, String name, String desc) {
+            // the class reader has already matched the name and parameter descriptor
+            this.collector = new MethodCollector((Modifier.isStatic(access) ? 0 : 1),
+                    parameterSlots(parameterDescriptor));
+            return collector;
         }
 
         private String[] getParameterNamesForMethod() {
@@ -218,6 +504,50 @@ public class BytecodeReadingParanamer implements Paranamer {
 
     }
 
+    /**
+     * The class collector starts a method collector for every method of a class, so
+     * that all parameter names are read in one pass.
+     */
+    private static class ClassCollector implements ClassVisitor {
+
+        private final Map<String, MethodCollector> collectors = new HashMap<String, MethodCollector>();
+
+        public String getMethodName() {
+            return null;
+        }
+
+        public String getParameterDescriptor() {
+            return null;
+        }
+
+        public boolean isDone() {
+            return false;
+        }
+
+        public MethodCollector visitMethod(int access, String name, String desc) {
+            String key = name + desc.substring(0, desc.indexOf(')') + 1);
+            // as with TypeCollector, the first method with a matching name and parameter list wins
+            if (collectors.containsKey(key)) {
+                return null;
+            }
+            MethodCollector collector = new MethodCollector((Modifier.isStatic(access) ? 0 : 1),
+                    parameterSlots(desc));
+            collectors.put(key, collector);
+            return collector;
+        }
+
+        private Map<String, String[]> getParameterNamesByDescriptor() {
+            Map<String, String[]> names = new HashMap<String, String[]>();
+            for (Map.Entry<String, MethodCollector> entry : collectors.entrySet()) {
+                MethodCollector collector = entry.getValue();
+                names.put(entry.getKey(), collector.isDebugInfoPresent()
+                        ? collector.getResult().split(",") : NO_DEBUG_INFO);
+            }
+            return names;
+        }
+
+    }
+
     /**
      * Objects of this class collects information from a specific method.
      *
@@ -308,11 +638,10 @@ public class BytecodeReadingParanamer implements Paranamer {
     private static class ClassReader {
 
         /**
-         * The class to be parsed. <i>The content of this array must not be
-         * modified. This field is intended for Attribute sub classes, and
-         * is normally not needed by class generators or adapters.</i>
+         * The class to be parsed, from index 0. It may be a memory-mapped file, and is
+         * only ever read with absolute gets, so its position and limit are left alone.
          */
-        public final byte[] b;
+        public final ByteBuffer b;
 
         /**
          * The start index of each constant pool item in {@link #b b}, plus one.
@@ -327,9 +656,11 @@ public class BytecodeReadingParanamer implements Paranamer {
          * which GREATLY improves performances (by a factor 2 to 3). This caching
          * strategy could be extended to all constant pool items, but its benefit
          * would not be so great for these items (because they are much less
-         * expensive to parse than CONSTANT_Utf8 items).
+         * expensive to parse than CONSTANT_Utf8 items). Only the items that are
+         * actually referenced by a visited method are ever decoded, and the cache
+         * itself is only made when the first of them is.
          */
-        private final String[] strings;
+        private String[] strings;
 
         /**
          * Maximum length of the strings contained in the constant pool of the
@@ -408,7 +739,7 @@ public class BytecodeReadingParanamer implements Paranamer {
          *
          * @param b the bytecode of the class to be read.
          */
-        private ClassReader(final byte[] b) {
+        private ClassReader(final ByteBuffer b) {
             this(b, 0);
         }
 
@@ -418,18 +749,17 @@ public class BytecodeReadingParanamer implements Paranamer {
          * @param b   the bytecode of the class to be read.
          * @param off the start offset of the class data.
          */
-        private ClassReader(final byte[] b, final int off) {
+        private ClassReader(final ByteBuffer b, final int off) {
             this.b = b;
             // parses the constant pool
             items = new int[readUnsignedShort(off + 8)];
             int n = items.length;
-            strings = new String[n];
             int max = 0;
             int index = off + 10;
             for (int i = 1; i < n; ++i) {
                 items[i] = index + 1;
                 int size;
-                switch (b[index]) {
+                switch (b.get(index)) {
                     case FIELD:
                     case METH:
                     case IMETH:
@@ -467,61 +797,6 @@ public class BytecodeReadingParanamer implements Paranamer {
         }
 
 
-        /**
-         * Constructs a new {@link ClassReader} object.
-         *
-         * @param is an input stream from which to read the class.
-         * @throws IOException if a problem occurs during reading.
-         */
-        private ClassReader(final InputStream is) throws IOException {
-            this(readClass(is));
-        }
-
-        /**
-         * Reads the bytecode of a class.
-         *
-         * @param is an input stream from which to read the class.
-         * @return the bytecode read from the given input stream.
-         * @throws IOException if a problem occurs during reading.
-         */
-        private static byte[] readClass(final InputStream is) throws IOException {
-            if (is == null) {
-                throw new IOException("Class not found");
-            }
-            try {
-		          byte[] b = new byte[is.available()];
-		          int len = 0;
-		          while (true) {
-		              int n = is.read(b, len, b.length - len);
-		              if (n == -1) {
-		                  if (len < b.length) {
-		                      byte[] c = new byte[len];
-		                      System.arraycopy(b, 0, c, 0, len);
-		                      b = c;
-		                  }
-		                  return b;
-		              }
-		              len += n;
-		              if (len == b.length) {
-		                  int last = is.read();
-		                  if (last < 0) {
-		                      return b;
-		                  }
-		                  byte[] c = new byte[b.length + 1000];
-		                  System.arraycopy(b, 0, c, 0, len);
-		                  c[len++] = (byte) last;
-		                  b = c;
-		              }
-		          }
-            } finally {
-            	try {
-            		is.close ();
-            	} catch (IOException ex) {
-            		//ignore
-            	}
-            }
-        }
-
         // ------------------------------------------------------------------------
         // Public methods
         // ------------------------------------------------------------------------
@@ -529,159 +804,88 @@ public class BytecodeReadingParanamer implements Paranamer {
         /**
          * Makes the given visitor visit the Java class of this {@link ClassReader}.
          * This class is the one specified in the constructor (see
-         * {@link #ClassReader(byte[]) ClassReader}).
+         * {@link #ClassReader(ByteBuffer) ClassReader}).
          *
          * @param classVisitor the visitor that must visit this class.
          */
-        private void accept(final TypeCollector classVisitor) {
+        private void accept(final ClassVisitor classVisitor) {
             char[] c = new char[maxStringLength]; // buffer used to read strings
-            int i, j, k; // loop variables
-            int u, v, w; // indexes in b
-
-            String attrName;
-            int anns = 0;
-            int ianns = 0;
-
-            // visits the header
-            u = header;
-            v = items[readUnsignedShort(u + 4)];
-            int len = readUnsignedShort(u + 6);
-            w = 0;
-            u += 8;
-            for (i = 0; i < len; ++i) {
-                u += 2;
-            }
-            v = u;
-            i = readUnsignedShort(v);
-            v += 2;
-            for (; i > 0; --i) {
-                j = readUnsignedShort(v + 6);
-                v += 8;
-                for (; j > 0; --j) {
-                    v += 6 + readInt(v + 2);
-                }
-            }
-            i = readUnsignedShort(v);
-            v += 2;
-            for (; i > 0; --i) {
-                j = readUnsignedShort(v + 6);
-                v += 8;
-                for (; j > 0; --j) {
-                    v += 6 + readInt(v + 2);
-                }
-            }
-
-            i = readUnsignedShort(v);
-            v += 2;
-            for (; i > 0; --i) {
-                v += 6 + readInt(v + 2);
-            }
 
-            //annotations not needed.
+            // skips the access flags, this and super class, and the interfaces
+            int u = header + 6;
+            u += 2 + 2 * readUnsignedShort(u);
 
-            // visits the fields
-            i = readUnsignedShort(u);
+            // skips the fields, by length
+            int i = readUnsignedShort(u);
             u += 2;
             for (; i > 0; --i) {
-                j = readUnsignedShort(u + 6);
+                int j = readUnsignedShort(u + 6);
                 u += 8;
                 for (; j > 0; --j) {
                     u += 6 + readInt(u + 2);
                 }
             }
 
-            // visits the methods
+            // visits the methods, until the visitor has what it wants.
+            // the class attributes come after the methods, and are not needed.
             i = readUnsignedShort(u);
             u += 2;
-            for (; i > 0; --i) {
+            for (; i > 0 && !classVisitor.isDone(); --i) {
                 // inlined in original ASM source, now a method call
                 u = readMethod(classVisitor, c, u);
             }
         }
 
-        private int readMethod(TypeCollector classVisitor, char[] c, int u) {
-            int v;
-            int w;
-            int j;
-            String attrName;
-            int k;
+        private int readMethod(ClassVisitor classVisitor, char[] c, int u) {
             int access = readUnsignedShort(u);
-            String name = readUTF8(u + 2, c);
-            String desc = readUTF8(u + 4, c);
-            v = 0;
-            w = 0;
+            int nameItem = readUnsignedShort(u + 2);
+            int descItem = readUnsignedShort(u + 4);
 
-            // looks for Code and Exceptions attributes
-            j = readUnsignedShort(u + 6);
+            // looks for the Code attribute, the others are skipped by length
+            int code = 0;
+            int j = readUnsignedShort(u + 6);
             u += 8;
             for (; j > 0; --j) {
-                attrName = readUTF8(u, c);
-                int attrSize = readInt(u + 2);
-                u += 6;
-                // tests are sorted in decreasing frequency order
-                // (based on frequencies observed on typical classes)
-                if (attrName.equals("Code")) {
-                    v = u;
+                if (utf8Equals(readUnsignedShort(u), "Code", c)) {
+                    code = u + 6;
                 }
-                u += attrSize;
+                u += 6 + readInt(u + 2);
             }
-            // reads declared exceptions
-            if (w == 0) {
+
+            // other methods are passed over without decoding, or allocating, anything
+            MethodCollector mv;
+            String methodName = classVisitor.getMethodName();
+            if (methodName == null) {
+                mv = classVisitor.visitMethod(access, readUTF8Item(nameItem, c), readUTF8Item(descItem, c));
             } else {
-                w += 2;
-                for (j = 0; j < readUnsignedShort(w); ++j) {
-                    w += 2;
+                String parameterDescriptor = classVisitor.getParameterDescriptor();
+                if (!utf8Equals(nameItem, methodName, c) || !utf8StartsWith(descItem, parameterDescriptor, c)) {
+                    return u;
                 }
+                mv = classVisitor.visitMethod(access, methodName, parameterDescriptor);
             }
 
-            // visits the method's code, if any
-            MethodCollector mv = classVisitor.visitMethod(access, name, desc);
+            if (mv != null && code != 0) {
+                // skips max_stack, max_locals, the code and the exception table
+                int v = code + 4;
+                v += 4 + readInt(v);
+                v += 2 + 8 * readUnsignedShort(v);
 
-            if (mv != null && v != 0) {
-                int codeLength = readInt(v + 4);
-                v += 8;
-
-                int codeStart = v;
-                int codeEnd = v + codeLength;
-                v = codeEnd;
-
-                j = readUnsignedShort(v);
-                v += 2;
-                for (; j > 0; --j) {
-                    v += 8;
-                }
-                // parses the local variable, line number tables, and code
-                // attributes
+                // finds the local variable table among the code attributes
                 int varTable = 0;
-                int varTypeTable = 0;
                 j = readUnsignedShort(v);
                 v += 2;
                 for (; j > 0; --j) {
-                    attrName = readUTF8(v, c);
-                    if (attrName.equals("LocalVariableTable")) {
+                    if (utf8Equals(readUnsignedShort(v), "LocalVariableTable", c)) {
                         varTable = v + 6;
-                    } else if (attrName.equals("LocalVariableTypeTable")) {
-                        varTypeTable = v + 6;
                     }
                     v += 6 + readInt(v + 2);
                 }
 
-                v = codeStart;
-                // visits the local variable tables
+                // visits the local variable table
                 if (varTable != 0) {
-                    if (varTypeTable != 0) {
-                        k = readUnsignedShort(varTypeTable) * 3;
-                        w = varTypeTable + 2;
-                        int[] typeTable = new int[k];
-                        while (k > 0) {
-                            typeTable[--k] = w + 6; // signature
-                            typeTable[--k] = readUnsignedShort(w + 8); // index
-                            typeTable[--k] = readUnsignedShort(w); // start
-                            w += 10;
-                        }
-                    }
-                    k = readUnsignedShort(varTable);
-                    w = varTable + 2;
+                    int k = readUnsignedShort(varTable);
+                    int w = varTable + 2;
                     for (; k > 0; --k) {
                         int index = readUnsignedShort(w + 8);
                         mv.visitLocalVariable(readUTF8(w + 4, c), index);
@@ -701,8 +905,7 @@ public class BytecodeReadingParanamer implements Paranamer {
          * @return the read value.
          */
         private int readUnsignedShort(final int index) {
-            byte[] b = this.b;
-            return ((b[index] & 0xFF) << 8) | (b[index + 1] & 0xFF);
+            return b.getShort(index) & 0xFFFF;
         }
 
         /**
@@ -714,9 +917,7 @@ public class BytecodeReadingParanamer implements Paranamer {
          * @return the read value.
          */
         private int readInt(final int index) {
-            byte[] b = this.b;
-            return ((b[index] & 0xFF) << 24) | ((b[index + 1] & 0xFF) << 16)
-                    | ((b[index + 2] & 0xFF) << 8) | (b[index + 3] & 0xFF);
+            return b.getInt(index);
         }
 
         /**
@@ -731,15 +932,71 @@ public class BytecodeReadingParanamer implements Paranamer {
          * @return the String corresponding to the specified UTF8 item.
          */
         private String readUTF8(int index, final char[] buf) {
-            int item = readUnsignedShort(index);
+            return readUTF8Item(readUnsignedShort(index), buf);
+        }
+
+        /**
+         * Reads an UTF8 string constant pool item in {@link #b b}.
+         *
+         * @param item the index of an UTF8 constant pool item.
+         * @param buf  buffer to be used to read the item. This buffer must be
+         *             sufficiently large. It is not automatically resized.
+         * @return the String corresponding to the specified UTF8 item.
+         */
+        private String readUTF8Item(int item, final char[] buf) {
+            if (strings == null) {
+                strings = new String[items.length];
+            }
             String s = strings[item];
             if (s != null) {
                 return s;
             }
-            index = items[item];
+            int index = items[item];
             return strings[item] = readUTF(index + 2, readUnsignedShort(index), buf);
         }
 
+        /**
+         * Compares an UTF8 string constant pool item with a String, without decoding
+         * the item if the String is plain ASCII, as names of attributes always are.
+         *
+         * @param item the index of an UTF8 constant pool item.
+         * @param s    the String to compare the item with.
+         * @param buf  buffer to be used to read the item, if it has to be decoded.
+         * @return true if the item is the given String.
+         */
+        private boolean utf8Equals(int item, String s, final char[] buf) {
+            return utf8Compare(item, s, false, buf);
+        }
+
+        /**
+         * Like {@link #utf8Equals}, but true if the item only starts with the String.
+         */
+        private boolean utf8StartsWith(int item, String s, final char[] buf) {
+            return utf8Compare(item, s, true, buf);
+        }
+
+        private boolean utf8Compare(int item, String s, boolean prefix, final char[] buf) {
+            int index = items[item];
+            int utfLen = readUnsignedShort(index);
+            int strLen = s.length();
+            // modified UTF8 takes at least one byte per char
+            if (utfLen < strLen) {
+                return false;
+            }
+            index += 2;
+            for (int i = 0; i < strLen; i++) {
+                char ch = s.charAt(i);
+                if (ch == 0 || ch >= 0x80) {
+                    String decoded = readUTF8Item(item, buf);
+                    return prefix ? decoded.startsWith(s) : decoded.equals(s);
+                }
+                if (b.get(index + i) != ch) {
+                    return false;
+                }
+            }
+            return prefix || utfLen == strLen;
+        }
+
         /**
          * Reads UTF8 string in {@link #b b}.
          *
@@ -751,13 +1008,13 @@ public class BytecodeReadingParanamer implements Paranamer {
          */
         private String readUTF(int index, final int utfLen, final char[] buf) {
             int endIndex = index + utfLen;
-            byte[] b = this.b;
+            ByteBuffer b = this.b;
             int strLen = 0;
             int c;
             int st = 0;
             char cc = 0;
             while (index < endIndex) {
-                c = b[index++];
+                c = b.get(index++);
                 switch (st) {
                     case 0:
                         c = c & 0xFF;
@@ -787,363 +1044,4 @@ public class BytecodeReadingParanamer implements Paranamer {
         }
 
     }
-
-/***
- * Portions Copyright (c) 2007 Paul Hammant
- * Portions copyright (c) 2000-2007 INRIA, France Telecom
- * All rights reserved.
- *
- * Redistribution and use in source and binary forms, with or without
- * modification, are permitted provided that the following conditions
- * are met:
- * 1. Redistributions of source code must retain the above copyright
- *    notice, this list of conditions and the following disclaimer.
- * 2. Redistributions in binary form must reproduce the above copyright
- *    notice, this list of conditions and the following disclaimer in the
- *    documentation and/or other materials provided with the distribution.
- * 3. Neither the name of the copyright holders nor the names of its
- *    contributors may be used to endorse or promote products derived from
- *    this software without specific prior written permission.
- *
- * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
- * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
- * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
- * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
- * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
- * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
- * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
- * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
- * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
- * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
- * THE POSSIBILITY OF SUCH DAMAGE.
- */
-
-    /**
-     * A Java type. This class can be used to make it easier to manipulate type and
-     * method descriptors.
-     *
-     * @author Eric Bruneton
-     * @author Chris Nokleberg
-     */
-    private static class Type {
-
-        /**
-         * The sort of the <tt>void</tt> type.
-         */
-        private final static int VOID = 0;
-
-        /**
-         * The sort of the <tt>boolean</tt> type.
-         */
-        private final static int BOOLEAN = 1;
-
-        /**
-         * The sort of the <tt>char</tt> type.
-         */
-        private final static int CHAR = 2;
-
-        /**
-         * The sort of the <tt>byte</tt> type.
-         */
-        private final static int BYTE = 3;
-
-        /**
-         * The sort of the <tt>short</tt> type.
-         */
-        private final static int SHORT = 4;
-
-        /**
-         * The sort of the <tt>int</tt> type.
-         */
-        private final static int INT = 5;
-
-        /**
-         * The sort of the <tt>float</tt> type.
-         */
-        private final static int FLOAT = 6;
-
-        /**
-         * The sort of the <tt>long</tt> type.
-         */
-        private final static int LONG = 7;
-
-        /**
-         * The sort of the <tt>double</tt> type.
-         */
-        private final static int DOUBLE = 8;
-
-        /**
-         * The sort of array reference types.
-         */
-        private final static int ARRAY = 9;
-
-        /**
-         * The sort of object reference type.
-         */
-        private final static int OBJECT = 10;
-
-        /**
-         * The <tt>void</tt> type.
-         */
-        private final static Type VOID_TYPE = new Type(VOID, null, ('V' << 24) 
-            | (5 << 16) | (0 << 8) | 0, 1);
-
-        /**
-         * The <tt>boolean</tt> type.
-         */
-        private final static Type BOOLEAN_TYPE = new Type(BOOLEAN, null, ('Z' << 24) 
-            | (0 << 16) | (5 << 8) | 1, 1);
-
-        /**
-         * The <tt>char</tt> type.
-         */
-        private final static Type CHAR_TYPE = new Type(CHAR, null, ('C' << 24) 
-            | (0 << 16) | (6 << 8) | 1, 1);
-
-        /**
-         * The <tt>byte</tt> type.
-         */
-        private final static Type BYTE_TYPE = new Type(BYTE, null, ('B' << 24) 
-            | (0 << 16) | (5 << 8) | 1, 1);
-
-        /**
-         * The <tt>short</tt> type.
-         */
-        private final static Type SHORT_TYPE = new Type(SHORT, null, ('S' << 24) 
-            | (0 << 16) | (7 << 8) | 1, 1);
-
-        /**
-         * The <tt>int</tt> type.
-         */
-        private final static Type INT_TYPE = new Type(INT, null, ('I' << 24) 
-            | (0 << 16) | (0 << 8) | 1, 1);
-
-        /**
-         * The <tt>float</tt> type.
-         */
-        private final static Type FLOAT_TYPE = new Type(FLOAT, null, ('F' << 24) 
-            | (2 << 16) | (2 << 8) | 1, 1);
-
-        /**
-         * The <tt>long</tt> type.
-         */
-        private final static Type LONG_TYPE = new Type(LONG, null, ('J' << 24) 
-            | (1 << 16) | (1 << 8) | 2, 1);
-
-        /**
-         * The <tt>double</tt> type.
-         */
-        private final static Type DOUBLE_TYPE = new Type(DOUBLE, null, ('D' << 24) 
-            | (3 << 16) | (3 << 8) | 2, 1);
-
-        // ------------------------------------------------------------------------
-        // Fields
-        // ------------------------------------------------------------------------
-
-        /**
-         * The sort of this Java type.
-         */
-        private final int sort;
-
-        /**
-         * A buffer containing the internal name of this Java type. This field is
-         * only used for reference types.
-         */
-        private char[] buf;
-
-        /**
-         * The offset of the internal name of this Java type in {@link #buf buf} or,
-         * for primitive types, the size, descriptor and getOpcode offsets for this
-         * type (byte 0 contains the size, byte 1 the descriptor, byte 2 the offset
-         * for IALOAD or IASTORE, byte 3 the offset for all other instructions).
-         */
-        private int off;
-
-        /**
-         * The length of the internal name of this Java type.
-         */
-        private final int len;
-
-        // ------------------------------------------------------------------------
-        // Constructors
-        // ------------------------------------------------------------------------
-
-        /**
-         * Constructs a primitive type.
-         *
-         * @param sort the sort of the primitive type to be constructed.
-         */
-        private Type(final int sort) {
-            this.sort = sort;
-            this.len = 1;
-        }
-
-        /**
-         * Constructs a reference type.
-         *
-         * @param sort the sort of the reference type to be constructed.
-         * @param buf  a buffer containing the descriptor of the previous type.
-         * @param off  the offset of this descriptor in the previous buffer.
-         * @param len  the length of this descriptor.
-         */
-        private Type(final int sort, final char[] buf, final int off, final int len) {
-            this.sort = sort;
-            this.buf = buf;
-            this.off = off;
-            this.len = len;
-        }
-
-
-        /**
-         * Returns the Java types corresponding to the argument types of the given
-         * method descriptor.
-         *
-         * @param methodDescriptor a method descriptor.
-         * @return the Java types corresponding to the argument types of the given
-         *         method descriptor.
-         */
-        private static Type[] getArgumentTypes(final String methodDescriptor) {
-            char[] buf = methodDescriptor.toCharArray();
-            int off = 1;
-            int size = 0;
-            while (true) {
-                char car = buf[off++];
-                if (car == ')') {
-                    break;
-                } else if (car == 'L') {
-                    while (buf[off++] != ';') {
-                    }
-                    ++size;
-                } else if (car != '[') {
-                    ++size;
-                }
-            }
-
-            Type[] args = new Type[size];
-            off = 1;
-            size = 0;
-            while (buf[off] != ')') {
-                args[size] = getType(buf, off);
-                off += args[size].len + (args[size].sort == OBJECT ? 2 : 0);
-                size += 1;
-            }
-            return args;
-        }
-
-
-        /**
-         * Returns the Java type corresponding to the given type descriptor.
-         *
-         * @param buf a buffer containing a type descriptor.
-         * @param off the offset of this descriptor in the previous buffer.
-         * @return the Java type corresponding to the given type descriptor.
-         */
-        private static Type getType(final char[] buf, final int off) {
-            int len;
-            switch (buf[off]) {
-                case 'V':
-                    return VOID_TYPE;
-                case 'Z':
-                    return BOOLEAN_TYPE;
-                case 'C':
-                    return CHAR_TYPE;
-                case 'B':
-                    return BYTE_TYPE;
-                case 'S':
-                    return SHORT_TYPE;
-                case 'I':
-                    return INT_TYPE;
-                case 'F':
-                    return FLOAT_TYPE;
-                case 'J':
-                    return LONG_TYPE;
-                case 'D':
-                    return DOUBLE_TYPE;
-                case '[':
-                    len = 1;
-                    while (buf[off + len] == '[') {
-                        ++len;
-                    }
-                    if (buf[off + len] == 'L') {
-                        ++len;
-                        while (buf[off + len] != ';') {
-                            ++len;
-                        }
-                    }
-                    return new Type(ARRAY, buf, off, len + 1);
-                    // case 'L':
-                default:
-                    len = 1;
-                    while (buf[off + len] != ';') {
-                        ++len;
-                    }
-                    return new Type(OBJECT, buf, off + 1, len - 1);
-            }
-        }
-
-        // ------------------------------------------------------------------------
-        // Accessors
-        // ------------------------------------------------------------------------
-
-        /**
-         * Returns the number of dimensions of this array type. This method should
-         * only be used for an array type.
-         *
-         * @return the number of dimensions of this array type.
-         */
-        private int getDimensions() {
-            int i = 1;
-            while (buf[off + i] == '[') {
-                ++i;
-            }
-            return i;
-        }
-
-        /**
-         * Returns the type of the elements of this array type. This method should
-         * only be used for an array type.
-         *
-         * @return Returns the type of the elements of this array type.
-         */
-        private Type getElementType() {
-            return getType(buf, off + getDimensions());
-        }
-
-        /**
-         * Returns the name of the class corresponding to this type.
-         *
-         * @return the fully qualified name of the class corresponding to this type.
-         */
-        private String getClassName() {
-            switch (sort) {
-                case VOID:
-                    return "void";
-                case BOOLEAN:
-                    return "boolean";
-                case CHAR:
-                    return "char";
-                case BYTE:
-                    return "byte";
-                case SHORT:
-                    return "short";
-                case INT:
-                    return "int";
-                case FLOAT:
-                    return "float";
-                case LONG:
-                    return "long";
-                case DOUBLE:
-                    return "double";
-                case ARRAY:
-                    StringBuffer b = new StringBuffer(getElementType().getClassName());
-                    for (int i = getDimensions(); i > 0; --i) {
-                        b.append("[]");
-                    }
-                    return b.toString();
-                    // case OBJECT:
-                default:
-                    return new String(buf, off, len).replace('/', '.');
-            }
-        }
-    }
 }
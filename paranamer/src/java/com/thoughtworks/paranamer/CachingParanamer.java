@@ -30,12 +30,27 @@
 
 package com.thoughtworks.paranamer;
 
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
+import java.lang.reflect.Member;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.WeakHashMap;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
 
 /**
  * Implementation of Paranamer which delegate to another Paranamer implementation,
@@ -55,12 +70,62 @@ public class CachingParanamer implements Paranamer {
     public static final String __PARANAMER_DATA = "v1.0 \n"
             + "com.thoughtworks.paranamer.CachingParanamer <init> com.thoughtworks.paranamer.Paranamer delegate \n"
             + "com.thoughtworks.paranamer.CachingParanamer lookupParameterNames java.lang.AccessibleObject methodOrConstructor \n"
-            + "com.thoughtworks.paranamer.CachingParanamer lookupParameterNames java.lang.AccessibleObject, boolean methodOrCtor,throwExceptionIfMissing \n";
+            + "com.thoughtworks.paranamer.CachingParanamer lookupParameterNames java.lang.AccessibleObject, boolean methodOrCtor,throwExceptionIfMissing \n"
+            + "com.thoughtworks.paranamer.CachingParanamer lookupParameterNames java.lang.AccessibleObject,boolean,java.time.Duration methodOrCtor,throwExceptionIfMissing,budget \n";
 
     private final Paranamer delegate;
 
-    private final Map<AccessibleObject,String[]> methodCache = makeMethodCache();
+    private final MethodCache methodCache;
+
+    /**
+     * Thrown for lookups that are known to find nothing. Made once, without a stack trace.
+     */
+    private static final ParameterNamesNotFoundException NOT_FOUND = new RememberedNotFound();
+
+    /**
+     * Misses are cached as one of these markers, which are told apart from names by their
+     * single null element, and from each other by identity. When misses expire, the current
+     * marker is replaced every third of the time to live, at the first lookup of a miss after
+     * that, and misses cached with a marker older than the previous one are looked up again.
+     */
+    private volatile String[] currentMiss = new String[1];
+    private volatile String[] previousMiss = currentMiss;
+    private volatile long currentMissSince = System.nanoTime();
+    private volatile long missGeneration = -1;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder totalLoadTime = new LongAdder();
+    private final LongAdder[] loadTimeHistogram = new LongAdder[ParanamerStats.loadTimeBuckets()];
+    {
+        for (int i = 0; i < loadTimeHistogram.length; i++) {
+            loadTimeHistogram[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * Makes the cache of parameter names. By default that is a {@link ClassTableCache}
+     * that holds its classes weakly, unless a subclass overrides {@link #makeMethodCache()},
+     * in which case its map is used, in a {@link MapCache}.
+     */
+    protected MethodCache makeCache() {
+        for (Class<?> type = getClass(); type != CachingParanamer.class; type = type.getSuperclass()) {
+            try {
+                type.getDeclaredMethod("makeMethodCache");
+                return new MapCache(makeMethodCache());
+            } catch (NoSuchMethodException e) {
+                // not overridden there
+            }
+        }
+        return new ClassTableCache(true);
+    }
 
+    /**
+     * @deprecated only used when overridden, as a map keyed by Method or Constructor objects
+     * loses its entries as soon as the caller's copies of them are garbage.
+     * Override {@link #makeCache()} instead, with a {@link MapCache} if need be.
+     */
+    @Deprecated
     protected Map<AccessibleObject, String[]> makeMethodCache() {
         return Collections.synchronizedMap(new WeakHashMap<AccessibleObject, String[]>());
     }
@@ -80,6 +145,17 @@ public class CachingParanamer implements Paranamer {
      */
     public CachingParanamer(Paranamer delegate) {
         this.delegate = delegate;
+        this.methodCache = makeCache();
+    }
+
+    /**
+     * For subclasses whose cache needs settings of its own, which can't be had in {@link #makeCache()}.
+     * @param delegate the paranamer instance to use
+     * @param methodCache the cache to use
+     */
+    protected CachingParanamer(Paranamer delegate, MethodCache methodCache) {
+        this.delegate = delegate;
+        this.methodCache = methodCache;
     }
 
     public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
@@ -87,15 +163,579 @@ public class CachingParanamer implements Paranamer {
     }
 
     public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+        return lookup(methodOrCtor, throwExceptionIfMissing, null);
+    }
+
+    /**
+     * The budget is handed on to the delegate, which is always asked to throw, so that a lookup
+     * that ran out of time (an exception with a cause) is told apart from a miss, and not cached.
+     */
+    @Override
+    public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing, Duration budget) {
+        if (budget == null) {
+            throw new NullPointerException("budget");
+        }
+        return lookup(methodOrCtor, throwExceptionIfMissing, budget);
+    }
+
+    private String[] lookup(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing, Duration budget) {
         String[] names = methodCache.get(methodOrCtor);
+        if (names != null && isMiss(names)) {
+            if (names == currentMiss() || names == previousMiss) {
+                hits.increment();
+                if (throwExceptionIfMissing) {
+                    throw NOT_FOUND;
+                }
+                return Paranamer.EMPTY_NAMES;
+            }
+            // expired
+            names = null;
+        }
         // refer PARANAMER-19
         if(names == null) {
-            names = delegate.lookupParameterNames(methodOrCtor, throwExceptionIfMissing);
+            misses.increment();
+            long start = System.nanoTime();
+            try {
+                if (budget == null) {
+                    names = delegate.lookupParameterNames(methodOrCtor, throwExceptionIfMissing);
+                } else {
+                    names = delegate.lookupParameterNames(methodOrCtor, true, budget);
+                }
+            } catch (ParameterNamesNotFoundException e) {
+                // a miss with a cause, like an IOException, may not happen next time
+                if (e.getCause() == null) {
+                    methodCache.put(methodOrCtor, currentMiss());
+                }
+                if (throwExceptionIfMissing || budget == null) {
+                    throw e;
+                }
+                return Paranamer.EMPTY_NAMES;
+            } finally {
+                recordLoadTime(System.nanoTime() - start);
+            }
+            if (names.length == 0 && ((Executable) methodOrCtor).getParameterCount() > 0) {
+                // a miss the delegate was asked not to throw for, remembered as one all the same
+                methodCache.put(methodOrCtor, currentMiss());
+                if (throwExceptionIfMissing) {
+                    throw NOT_FOUND;
+                }
+                return Paranamer.EMPTY_NAMES;
+            }
             methodCache.put(methodOrCtor, names);
+        } else {
+            hits.increment();
         }
         return names;
     }
 
+    /**
+     * Looks up parameter names without any exception for a miss, whatever the delegate.
+     * @param methodOrCtor the method or constructor
+     * @return the parameter names, or nothing if they could not be found
+     */
+    public Optional<String[]> findParameterNames(AccessibleObject methodOrCtor) {
+        String[] names = lookupParameterNames(methodOrCtor, false);
+        if (names.length != ((Executable) methodOrCtor).getParameterCount()) {
+            return Optional.empty();
+        }
+        return Optional.of(names);
+    }
+
+    /**
+     * Misses, where the delegate threw a {@link ParameterNamesNotFoundException}, are cached,
+     * and rethrown as an exception without a stack trace, forever by default. This makes them
+     * be looked up again after a while.
+     * @param duration how long after, at most. At least a third of that.
+     * @param unit the unit of the duration
+     * @return this
+     */
+    public CachingParanamer expireMissesAfter(long duration, TimeUnit unit) {
+        missGeneration = Math.max(unit.toNanos(duration) / 3, 1);
+        return this;
+    }
+
+    private static boolean isMiss(String[] names) {
+        return names.length == 1 && names[0] == null;
+    }
+
+    private String[] currentMiss() {
+        long generation = missGeneration;
+        if (generation > 0 && System.nanoTime() - currentMissSince >= generation) {
+            synchronized (this) {
+                long now = System.nanoTime();
+                long age = now - currentMissSince;
+                if (age >= generation) {
+                    // if the current marker is two generations old, it goes right away
+                    previousMiss = age >= 2 * generation ? new String[1] : currentMiss;
+                    currentMiss = new String[1];
+                    currentMissSince = now;
+                }
+            }
+        }
+        return currentMiss;
+    }
+
+    /**
+     * Answered from the cache if all the declared methods and constructors are in it already,
+     * otherwise the whole class is looked up with one call to the delegate, and cached.
+     */
+    @Override
+    public Map<AccessibleObject, String[]> lookupAllParameterNames(Class<?> declaringClass) {
+        Executable[][] declared = new Executable[][] {declaringClass.getDeclaredConstructors(), declaringClass.getDeclaredMethods()};
+        Map<AccessibleObject, String[]> allNames = new HashMap<AccessibleObject, String[]>();
+        for (Executable[] executables : declared) {
+            for (Executable executable : executables) {
+                String[] names = methodCache.get(executable);
+                if (names == null || isMiss(names) && names != currentMiss() && names != previousMiss) {
+                    return cacheAllParameterNames(declaringClass, declared);
+                }
+                if (names.length == executable.getParameterCount() && !isMiss(names)) {
+                    allNames.put(executable, names);
+                }
+            }
+        }
+        hits.add(declared[0].length + declared[1].length);
+        return allNames;
+    }
+
+    private Map<AccessibleObject, String[]> cacheAllParameterNames(Class<?> declaringClass, Executable[][] declared) {
+        misses.increment();
+        Map<AccessibleObject, String[]> allNames;
+        long start = System.nanoTime();
+        try {
+            allNames = delegate.lookupAllParameterNames(declaringClass);
+        } finally {
+            recordLoadTime(System.nanoTime() - start);
+        }
+        for (Executable[] executables : declared) {
+            for (Executable executable : executables) {
+                String[] names = allNames.get(executable);
+                if (names != null && names.length == executable.getParameterCount()) {
+                    methodCache.put(executable, names);
+                } else {
+                    // as lookupParameterNames does, so that they throw and expire as other misses do
+                    methodCache.put(executable, executable.getParameterCount() == 0 ? Paranamer.EMPTY_NAMES : currentMiss());
+                }
+            }
+        }
+        return allNames;
+    }
+
+    private void recordLoadTime(long nanos) {
+        totalLoadTime.add(nanos);
+        loadTimeHistogram[ParanamerStats.loadTimeBucket(nanos)].increment();
+    }
+
+    /**
+     * The counters are striped, so that keeping them adds no contention to lookups.
+     * A bulk lookup counts a hit per method or constructor if they are all cached,
+     * otherwise one miss.
+     * @return a snapshot of the statistics of this cache
+     */
+    public ParanamerStats getStats() {
+        long[] histogram = new long[loadTimeHistogram.length];
+        for (int i = 0; i < histogram.length; i++) {
+            histogram[i] = loadTimeHistogram[i].sum();
+        }
+        return new ParanamerStats(hits.sum(), misses.sum(), methodCache.evictionCount(), methodCache.size(),
+                methodCache.estimatedBytes(), totalLoadTime.sum(), histogram);
+    }
+
+    /**
+     * Registers a {@link CachingParanamerMXBean} for this cache with the platform MBean server.
+     * @param name the name to register it under, e.g. <code>com.thoughtworks.paranamer:type=CachingParanamer</code>
+     * @return the name it was registered under, to unregister it with
+     * @throws JMException if it could not be registered
+     */
+    public ObjectName registerMBean(ObjectName name) throws JMException {
+        return ManagementFactory.getPlatformMBeanServer().registerMBean(new Management(), name).getObjectName();
+    }
+
+    private class Management implements CachingParanamerMXBean {
+
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        public long getMissCount() {
+            return misses.sum();
+        }
+
+        public double getHitRate() {
+            return getStats().getHitRate();
+        }
+
+        public long getEvictionCount() {
+            return methodCache.evictionCount();
+        }
+
+        public long getSize() {
+            return methodCache.size();
+        }
+
+        public long getEstimatedBytes() {
+            return methodCache.estimatedBytes();
+        }
+
+        public long getTotalLoadTime() {
+            return totalLoadTime.sum();
+        }
+
+        public long[] getLoadTimeHistogram() {
+            return getStats().getLoadTimeHistogram();
+        }
+
+        public long[] getLoadTimeHistogramBounds() {
+            return ParanamerStats.getLoadTimeHistogramBounds();
+        }
+    }
+
+    /**
+     * A rough estimate of the bytes a cache entry retains: the entry, its key and map node,
+     * plus the array of names and the names themselves.
+     */
+    private static long estimateBytes(String[] names) {
+        long bytes = 160 + 16 + 4L * names.length;
+        for (String name : names) {
+            if (name != null) {
+                bytes += 48 + name.length();
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Where the parameter names are kept.
+     */
+    protected interface MethodCache {
+
+        String[] get(AccessibleObject methodOrCtor);
+
+        void put(AccessibleObject methodOrCtor, String[] names);
+
+        /**
+         * @return the number of entries, or -1 if that can't be told
+         */
+        default long size() {
+            return -1;
+        }
+
+        /**
+         * @return a rough estimate of the bytes the entries retain, or -1 if that can't be told
+         */
+        default long estimatedBytes() {
+            return -1;
+        }
+
+        /**
+         * @return the number of entries evicted to keep within a bound
+         */
+        default long evictionCount() {
+            return 0;
+        }
+
+    }
+
+    /**
+     * A method cache that is a map from method or constructor to parameter names.
+     */
+    protected static class MapCache implements MethodCache {
+
+        private final Map<AccessibleObject, String[]> map;
+
+        public MapCache(Map<AccessibleObject, String[]> map) {
+            this.map = map;
+        }
+
+        public String[] get(AccessibleObject methodOrCtor) {
+            return map.get(methodOrCtor);
+        }
+
+        public void put(AccessibleObject methodOrCtor, String[] names) {
+            map.put(methodOrCtor, names);
+        }
+
+        public long size() {
+            return map.size();
+        }
+
+        public long estimatedBytes() {
+            long bytes = 0;
+            // the lock a synchronized map needs for iteration, harmless for a concurrent one
+            synchronized (map) {
+                for (String[] names : map.values()) {
+                    bytes += estimateBytes(names);
+                }
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * A method cache with a concurrent table of parameter names per declaring class, keyed
+     * by {@link MemberKey}, so that fresh copies of a Method or Constructor still hit.
+     */
+    protected static class ClassTableCache implements MethodCache {
+
+        private final Map<Class<?>, Map<MemberKey, String[]>> tables;
+
+        /**
+         * @param weakClasses if true, classes are held in a synchronized WeakHashMap, so
+         *                    that their classloaders can be garbage collected, otherwise
+         *                    they are held in a ConcurrentHashMap.
+         */
+        public ClassTableCache(boolean weakClasses) {
+            tables = weakClasses
+                    ? Collections.synchronizedMap(new WeakHashMap<Class<?>, Map<MemberKey, String[]>>())
+                    : new ConcurrentHashMap<Class<?>, Map<MemberKey, String[]>>();
+        }
+
+        public String[] get(AccessibleObject methodOrCtor) {
+            Map<MemberKey, String[]> table = tables.get(((Member) methodOrCtor).getDeclaringClass());
+            return table == null ? null : table.get(new MemberKey((Executable) methodOrCtor));
+        }
+
+        public void put(AccessibleObject methodOrCtor, String[] names) {
+            Class<?> declaringClass = ((Member) methodOrCtor).getDeclaringClass();
+            Map<MemberKey, String[]> table = tables.get(declaringClass);
+            if (table == null) {
+                table = new ConcurrentHashMap<MemberKey, String[]>();
+                Map<MemberKey, String[]> raced = tables.putIfAbsent(declaringClass, table);
+                if (raced != null) {
+                    table = raced;
+                }
+            }
+            table.put(new MemberKey((Executable) methodOrCtor), names);
+        }
+
+        public long size() {
+            long size = 0;
+            for (Map<MemberKey, String[]> table : tables()) {
+                size += table.size();
+            }
+            return size;
+        }
+
+        public long estimatedBytes() {
+            long bytes = 0;
+            for (Map<MemberKey, String[]> table : tables()) {
+                for (String[] names : table.values()) {
+                    bytes += estimateBytes(names);
+                }
+            }
+            return bytes;
+        }
+
+        private List<Map<MemberKey, String[]>> tables() {
+            synchronized (tables) {
+                return new ArrayList<Map<MemberKey, String[]>>(tables.values());
+            }
+        }
+    }
+
+    /**
+     * A method cache that hangs a concurrent table of parameter names off each declaring
+     * class, through a {@link ClassValue}. Hits take no lock, and a class's table goes
+     * away with the class, when its classloader is garbage collected.
+     */
+    protected static class ClassValueCache implements MethodCache {
+
+        private final ClassValue<Map<MemberKey, String[]>> tables = new ClassValue<Map<MemberKey, String[]>>() {
+            protected Map<MemberKey, String[]> computeValue(Class<?> type) {
+                return new ConcurrentHashMap<MemberKey, String[]>();
+            }
+        };
+
+        public String[] get(AccessibleObject methodOrCtor) {
+            return tables.get(((Member) methodOrCtor).getDeclaringClass()).get(new MemberKey((Executable) methodOrCtor));
+        }
+
+        public void put(AccessibleObject methodOrCtor, String[] names) {
+            tables.get(((Member) methodOrCtor).getDeclaringClass()).put(new MemberKey((Executable) methodOrCtor), names);
+        }
+    }
+
+    /**
+     * A method cache that holds at most a given number of entries, or an estimated number
+     * of bytes of parameter names, evicting with a CLOCK policy. Each entry has a small
+     * hit counter, which a hit bumps without taking any lock. On insertion, the clock hand
+     * goes round the entries in insertion order, evicting those whose counter is zero and
+     * decrementing the rest. So entries that are looked up once, as in a scan of a class,
+     * go before ones that are looked up again and again. Only insertion and eviction,
+     * which follow a miss anyway, are serialized. Each step of the hand is O(1), and an
+     * entry is passed at most three times before it is evicted.
+     */
+    protected static class BoundedCache implements MethodCache {
+
+        private static final int MAX_HITS = 3;
+
+        private final ConcurrentHashMap<ClassMemberKey, Entry> entries = new ConcurrentHashMap<ClassMemberKey, Entry>();
+        private final ArrayDeque<Entry> clock = new ArrayDeque<Entry>();
+        private final long maximum;
+        private final boolean weighInBytes;
+        private long weight;
+        private long bytes;
+        private final LongAdder evictions = new LongAdder();
+
+        /**
+         * @param maximum      the most entries, or estimated bytes, to hold.
+         * @param weighInBytes if true, the maximum is in estimated bytes, otherwise in entries.
+         */
+        public BoundedCache(long maximum, boolean weighInBytes) {
+            this.maximum = maximum;
+            this.weighInBytes = weighInBytes;
+        }
+
+        public String[] get(AccessibleObject methodOrCtor) {
+            Entry entry = entries.get(new ClassMemberKey((Executable) methodOrCtor));
+            if (entry == null) {
+                return null;
+            }
+            // racy, but only a hint. Not writing when saturated keeps hot entries' cache lines clean
+            if (entry.hits < MAX_HITS) {
+                entry.hits++;
+            }
+            return entry.names;
+        }
+
+        public void put(AccessibleObject methodOrCtor, String[] names) {
+            long entryBytes = estimateBytes(names);
+            Entry entry = new Entry(new ClassMemberKey((Executable) methodOrCtor), names,
+                    weighInBytes ? entryBytes : 1, entryBytes);
+            // an entry that this replaces stays on the clock, and is weighed, until the hand gets to it
+            entries.put(entry.key, entry);
+            synchronized (clock) {
+                clock.addLast(entry);
+                weight += entry.weight;
+                bytes += entry.bytes;
+                while (weight > maximum && !clock.isEmpty()) {
+                    Entry candidate = clock.pollFirst();
+                    boolean current = entries.get(candidate.key) == candidate;
+                    if (current && candidate.hits > 0) {
+                        candidate.hits--;
+                        clock.addLast(candidate);
+                    } else {
+                        if (current && entries.remove(candidate.key, candidate)) {
+                            evictions.increment();
+                        }
+                        weight -= candidate.weight;
+                        bytes -= candidate.bytes;
+                    }
+                }
+            }
+        }
+
+        public long size() {
+            return entries.size();
+        }
+
+        public long estimatedBytes() {
+            synchronized (clock) {
+                return bytes;
+            }
+        }
+
+        public long evictionCount() {
+            return evictions.sum();
+        }
+
+        private static final class Entry {
+
+            private final ClassMemberKey key;
+            private final String[] names;
+            private final long weight;
+            private final long bytes;
+            private volatile int hits;
+
+            private Entry(ClassMemberKey key, String[] names, long weight, long bytes) {
+                this.key = key;
+                this.names = names;
+                this.weight = weight;
+                this.bytes = bytes;
+            }
+        }
+    }
+
+    /**
+     * A {@link MemberKey} together with the declaring class, for caches that hold classes strongly.
+     */
+    private static final class ClassMemberKey {
+
+        private final Class<?> declaringClass;
+        private final MemberKey member;
+
+        private ClassMemberKey(Executable executable) {
+            declaringClass = executable.getDeclaringClass();
+            member = new MemberKey(executable);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * declaringClass.hashCode() + member.hashCode();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof ClassMemberKey)) {
+                return false;
+            }
+            ClassMemberKey other = (ClassMemberKey) o;
+            return declaringClass == other.declaringClass && member.equals(other.member);
+        }
+    }
+
+    /**
+     * Identifies a method or constructor within its declaring class by name and parameter
+     * type names, whatever copy of the Method or Constructor it was made from. Its hash is
+     * worked out once, from Strings that cache their own, and the names are nearly always
+     * the very same String instances, so comparisons are cheap. It holds no Class objects,
+     * so it can't keep a weakly held declaring class alive.
+     */
+    private static final class MemberKey {
+
+        private final String name;
+        private final String[] parameterTypeNames;
+        private final int hash;
+
+        private MemberKey(Executable executable) {
+            // a method may be named after its class, like the constructors are
+            name = executable instanceof Constructor ? "<init>" : executable.getName();
+            Class<?>[] types = executable.getParameterTypes();
+            parameterTypeNames = new String[types.length];
+            int h = name.hashCode();
+            for (int i = 0; i < types.length; i++) {
+                parameterTypeNames[i] = types[i].getName();
+                h = 31 * h + parameterTypeNames[i].hashCode();
+            }
+            hash = h;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof MemberKey)) {
+                return false;
+            }
+            MemberKey other = (MemberKey) o;
+            return hash == other.hash && name.equals(other.name)
+                    && Arrays.equals(parameterTypeNames, other.parameterTypeNames);
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private static class RememberedNotFound extends ParameterNamesNotFoundException {
+        private RememberedNotFound() {
+            super("Parameter names not found, as remembered from an earlier lookup", false);
+        }
+    }
+
     /**
      * This implementation has a better concurrent design (ConcurrentHashMap) which
      * has a better strategy to implement concurrency: segments instead of synchronized.
@@ -117,8 +757,65 @@ public class CachingParanamer implements Paranamer {
         }
 
         @Override
-        protected Map<AccessibleObject, String[]> makeMethodCache() {
-            return new ConcurrentHashMap<AccessibleObject,String[]>();
+        protected MethodCache makeCache() {
+            return new ClassTableCache(false);
+        }
+    }
+
+    /**
+     * This implementation neither synchronizes lookups, like the default does, nor keeps
+     * classes (and so their classloaders) from being garbage collected, like
+     * {@link WithoutWeakReferences} does. Parameter names are kept in a
+     * {@link ClassValueCache}, a table per declaring class.
+     */
+    public static class WithClassValues extends CachingParanamer {
+
+        public WithClassValues() {
+        }
+
+        public WithClassValues(Paranamer delegate) {
+            super(delegate);
+        }
+
+        @Override
+        protected MethodCache makeCache() {
+            return new ClassValueCache();
+        }
+    }
+
+    /**
+     * This implementation holds at most a given number of entries, or estimated bytes of
+     * parameter names, in a {@link BoundedCache}. Like {@link WithoutWeakReferences}, it
+     * does not synchronize lookups, but it does not grow without bound either.
+     */
+    public static class Bounded extends CachingParanamer {
+
+        /**
+         * @param maximumEntries the most methods and constructors to hold the names of
+         */
+        public Bounded(int maximumEntries) {
+            this(new AdaptiveParanamer(), maximumEntries);
+        }
+
+        /**
+         * @param delegate the paranamer instance to use
+         * @param maximumEntries the most methods and constructors to hold the names of
+         */
+        public Bounded(Paranamer delegate, int maximumEntries) {
+            super(delegate, new BoundedCache(maximumEntries, false));
+        }
+
+        /**
+         * @param delegate the paranamer instance to use
+         * @param maximumBytes the most bytes of parameter names, as estimated, to hold
+         * @return a CachingParanamer bounded by the estimated size of what it holds
+         */
+        public static Bounded byEstimatedBytes(Paranamer delegate, long maximumBytes) {
+            return new Bounded(delegate, new BoundedCache(maximumBytes, true));
+        }
+
+        private Bounded(Paranamer delegate, MethodCache methodCache) {
+            super(delegate, methodCache);
         }
     }
 
@@ -0,0 +1,174 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.thoughtworks.paranamer;
+
+import java.lang.reflect.AccessibleObject;
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Implementation of Paranamer which delegates to another Paranamer implementation, and stops asking
+ * it for a while after a run of slow or failed lookups. Failures are lookups that threw a
+ * {@link ParameterNamesNotFoundException} with a cause (like the IOException of an unreachable Javadoc
+ * server), or any other exception. Misses, where the delegate just has no names, are not failures.
+ * <p>
+ * Once open, lookups find nothing straight away, so that in an {@link AdaptiveParanamer} the next
+ * paranamer in line is asked instead. After the open period one lookup goes through to the delegate
+ * as a probe, and if that works out the circuit closes again.
+ * </p>
+ */
+public class CircuitBreakingParanamer implements Paranamer {
+
+    private final Paranamer delegate;
+    private final int failureThreshold;
+    private final long slowCallNanos;
+    private final long openForNanos;
+
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private final AtomicBoolean probing = new AtomicBoolean();
+    private volatile boolean open;
+    private volatile long openedAt;
+    private volatile Exception lastFailure;
+
+    /**
+     * Open for 30 seconds after 5 failed lookups in a row, or lookups of 2 seconds or more.
+     * @param delegate the paranamer in question
+     */
+    public CircuitBreakingParanamer(Paranamer delegate) {
+        this(delegate, 5, Duration.ofSeconds(2), Duration.ofSeconds(30));
+    }
+
+    /**
+     * @param delegate the paranamer in question
+     * @param failureThreshold how many slow or failed lookups in a row open the circuit
+     * @param slowCall how long a lookup may take before it counts as a failure (its names are still returned)
+     * @param openFor how long to stop asking the delegate for, before letting a probe through
+     */
+    public CircuitBreakingParanamer(Paranamer delegate, int failureThreshold, Duration slowCall, Duration openFor) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1");
+        }
+        this.delegate = delegate;
+        this.failureThreshold = failureThreshold;
+        this.slowCallNanos = slowCall.toNanos();
+        this.openForNanos = openFor.toNanos();
+    }
+
+    public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+        return lookupParameterNames(methodOrConstructor, true);
+    }
+
+    public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+        return lookup(methodOrCtor, throwExceptionIfMissing, null);
+    }
+
+    @Override
+    public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing, Duration budget) {
+        if (budget == null) {
+            throw new NullPointerException("budget");
+        }
+        return lookup(methodOrCtor, throwExceptionIfMissing, budget);
+    }
+
+    /**
+     * @return whether lookups are not going to the delegate, bar the odd probe
+     */
+    public boolean isOpen() {
+        return open;
+    }
+
+    private String[] lookup(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing, Duration budget) {
+        boolean probe = false;
+        if (open) {
+            if (System.nanoTime() - openedAt < openForNanos || !probing.compareAndSet(false, true)) {
+                if (throwExceptionIfMissing) {
+                    throw new ParameterNamesNotFoundException(methodOrCtor + " (circuit open)", lastFailure);
+                }
+                return Paranamer.EMPTY_NAMES;
+            }
+            probe = true;
+        }
+        long start = System.nanoTime();
+        try {
+            String[] names;
+            // the delegate is always asked to throw, so that its failures can be told from its misses
+            try {
+                if (budget == null) {
+                    names = delegate.lookupParameterNames(methodOrCtor, true);
+                } else {
+                    names = delegate.lookupParameterNames(methodOrCtor, true, budget);
+                }
+            } catch (ParameterNamesNotFoundException e) {
+                if (e.getCause() != null) {
+                    failed(e.getCause() instanceof Exception ? (Exception) e.getCause() : e, probe);
+                } else {
+                    completed(start, probe);
+                }
+                if (throwExceptionIfMissing) {
+                    throw e;
+                }
+                return Paranamer.EMPTY_NAMES;
+            } catch (RuntimeException e) {
+                failed(e, probe);
+                throw e;
+            }
+            completed(start, probe);
+            return names;
+        } finally {
+            if (probe) {
+                probing.set(false);
+            }
+        }
+    }
+
+    private void completed(long start, boolean probe) {
+        long took = System.nanoTime() - start;
+        if (took >= slowCallNanos) {
+            failed(new TimeoutException("lookup took " + TimeUnit.NANOSECONDS.toMillis(took) + "ms"), probe);
+            return;
+        }
+        consecutiveFailures.set(0);
+        if (probe) {
+            open = false;
+        }
+    }
+
+    private void failed(Exception failure, boolean probe) {
+        lastFailure = failure;
+        if (probe || consecutiveFailures.incrementAndGet() >= failureThreshold) {
+            openedAt = System.nanoTime();
+            open = true;
+        }
+    }
+}
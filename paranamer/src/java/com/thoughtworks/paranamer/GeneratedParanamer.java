@@ -0,0 +1,109 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.thoughtworks.paranamer;
+
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Superclass of the Paranamer implementations that the paranamer-maven-plugin generates with
+ * <code>&lt;paranamerClass&gt;</code>, one per module. The generated constructor adds the parameter
+ * names of every method and constructor in the module, as constants, so nothing is read or parsed
+ * at runtime, and nothing depends on debug information that a shrinker may strip. Generated
+ * classes are registered as <code>META-INF/services/com.thoughtworks.paranamer.Paranamer</code>,
+ * for {@link ServiceLoaderParanamer} to find.
+ */
+public abstract class GeneratedParanamer implements Paranamer {
+
+    private final Map<String, Map<String, LegacyParanamer.Entry>> classes = new HashMap<String, Map<String, LegacyParanamer.Entry>>();
+
+    /**
+     * Called by the generated constructor, once for each method and constructor.
+     * Where one is added more than once, the first wins.
+     * @param className the name of the declaring class, as from {@link Class#getName()}
+     * @param methodName the name of the method, or &lt;init&gt; for a constructor
+     * @param typeNames the names of the parameter types, as in <code>__PARANAMER_DATA</code>
+     * @param parameterNames the names of the parameters
+     */
+    protected final void add(String className, String methodName, String[] typeNames, String[] parameterNames) {
+        Map<String, LegacyParanamer.Entry> methods = classes.get(className);
+        if (methods == null) {
+            methods = new HashMap<String, LegacyParanamer.Entry>();
+            classes.put(className, methods);
+        }
+        LegacyParanamer.Entry entry = new LegacyParanamer.Entry(methodName, typeNames, parameterNames);
+        LegacyParanamer.Entry last = methods.get(methodName);
+        if (last == null) {
+            methods.put(methodName, entry);
+            return;
+        }
+        while (last.next != null) {
+            last = last.next;
+        }
+        last.next = entry;
+    }
+
+    public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+        return lookupParameterNames(methodOrConstructor, true);
+    }
+
+    public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+        Executable executable = (Executable) methodOrCtor;
+        if (executable.getParameterCount() == 0) {
+            return Paranamer.EMPTY_NAMES;
+        }
+        Map<String, LegacyParanamer.Entry> methods = classes.get(executable.getDeclaringClass().getName());
+        if (methods != null) {
+            String name = executable instanceof Constructor ? "<init>" : executable.getName();
+            Class<?>[] types = executable.getParameterTypes();
+            for (LegacyParanamer.Entry entry = methods.get(name); entry != null; entry = entry.next) {
+                if (entry.matches(name, types)) {
+                    return entry.parameterNames;
+                }
+            }
+        }
+        if (throwExceptionIfMissing) {
+            throw new ParameterNamesNotFoundException("No parameter names generated for " + methodOrCtor);
+        }
+        return Paranamer.EMPTY_NAMES;
+    }
+
+    /**
+     * @param className the name of the class, as from {@link Class#getName()}
+     * @return whether this has the names of any of its methods or constructors
+     */
+    public boolean hasParameterNames(String className) {
+        return classes.containsKey(className);
+    }
+}
@@ -0,0 +1,264 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.thoughtworks.paranamer;
+
+import com.thoughtworks.paranamer.index.IndexWriter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Implementation of Paranamer which reads the <code>META-INF/paranamer/index.bin</code> resources
+ * that the paranamer-maven-plugin writes with <code>&lt;index&gt;true&lt;/index&gt;</code>, one per jar
+ * or classes directory, rather than a <code>__PARANAMER_DATA</code> field in each class.
+ * <p>
+ * The indexes a classloader can see are found the first time a class of that classloader is
+ * looked up, and kept for as long as the classloader is. Indexes in directories are memory mapped,
+ * and ones in jars read into memory. Lookups binary search them, without reading class files or
+ * the fields of the class. Each class remembers the indexes of its classloader, so lookups take
+ * no lock once a class has been seen, and the indexes of one classloader are read without holding
+ * up lookups for another.
+ * </p>
+ * <p>
+ * An index that is cut short or otherwise corrupt does not fail the lookup: what cannot be read
+ * from it is taken as not being there.
+ * </p>
+ *
+ * @see IndexWriter
+ */
+public class IndexParanamer implements Paranamer {
+
+    public static final String INDEX_RESOURCE = IndexWriter.INDEX_RESOURCE;
+
+    private final Map<ClassLoader, LoaderIndexes> indexes = new WeakHashMap<ClassLoader, LoaderIndexes>();
+
+    private final ClassValue<List<ByteBuffer>> indexesOfClass = new ClassValue<List<ByteBuffer>>() {
+        @Override
+        protected List<ByteBuffer> computeValue(Class<?> type) {
+            ClassLoader loader = type.getClassLoader();
+            return loader == null ? Collections.<ByteBuffer>emptyList() : getIndexes(loader);
+        }
+    };
+
+    public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+        return lookupParameterNames(methodOrConstructor, true);
+    }
+
+    public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+        Executable executable = (Executable) methodOrCtor;
+        if (executable.getParameterCount() == 0) {
+            return Paranamer.EMPTY_NAMES;
+        }
+        Class<?> declaringClass = executable.getDeclaringClass();
+        String name = executable instanceof Constructor ? "<init>" : executable.getName();
+        String types = LegacyParanamer.getParameterTypeNamesCSV(executable.getParameterTypes());
+        List<ByteBuffer> buffers = indexesOfClass.get(declaringClass);
+        if (!buffers.isEmpty()) {
+            byte[] key = (declaringClass.getName() + " " + name + " " + types).getBytes(StandardCharsets.UTF_8);
+            for (ByteBuffer index : buffers) {
+                String names = find(index, key);
+                if (names != null) {
+                    return names.split(",");
+                }
+            }
+        }
+        if (throwExceptionIfMissing) {
+            throw new ParameterNamesNotFoundException("No parameter names indexed for class '" + declaringClass + "', methodOrCtor " + name
+                    + " and parameter types " + types);
+        }
+        return Paranamer.EMPTY_NAMES;
+    }
+
+    private List<ByteBuffer> getIndexes(ClassLoader loader) {
+        LoaderIndexes loaderIndexes;
+        synchronized (indexes) {
+            loaderIndexes = indexes.get(loader);
+            if (loaderIndexes == null) {
+                loaderIndexes = new LoaderIndexes();
+                indexes.put(loader, loaderIndexes);
+            }
+        }
+        synchronized (loaderIndexes) {
+            if (loaderIndexes.buffers == null) {
+                List<ByteBuffer> buffers = new ArrayList<ByteBuffer>();
+                try {
+                    Enumeration<URL> resources = findIndexResources(loader);
+                    while (resources.hasMoreElements()) {
+                        ByteBuffer index = readIndex(resources.nextElement());
+                        if (hasValidHeader(index)) {
+                            buffers.add(index);
+                        }
+                    }
+                } catch (IOException e) {
+                    // what was read is used, and the rest not looked for again
+                }
+                loaderIndexes.buffers = buffers;
+            }
+            return loaderIndexes.buffers;
+        }
+    }
+
+    /**
+     * @return whether the index has the magic number and version, and room for the offsets of as
+     *         many keys as it says it has
+     */
+    private static boolean hasValidHeader(ByteBuffer index) {
+        int limit = index.limit();
+        if (limit < 12 || index.getInt(0) != IndexWriter.MAGIC || index.getInt(4) != IndexWriter.VERSION) {
+            return false;
+        }
+        int count = index.getInt(8);
+        return count >= 0 && count <= (limit - 12) / 4;
+    }
+
+    /**
+     * @param loader the classloader in question
+     * @return the indexes it can see (those of its parents included)
+     * @throws IOException if they cannot be found
+     */
+    protected Enumeration<URL> findIndexResources(ClassLoader loader) throws IOException {
+        return loader.getResources(INDEX_RESOURCE);
+    }
+
+    /**
+     * Maps an index that is a file, and reads any other into memory.
+     * @param url where the index is
+     * @return its bytes
+     * @throws IOException if it cannot be read
+     */
+    protected ByteBuffer readIndex(URL url) throws IOException {
+        if ("file".equals(url.getProtocol())) {
+            try {
+                FileChannel channel = FileChannel.open(Paths.get(url.toURI()), StandardOpenOption.READ);
+                try {
+                    return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+                } finally {
+                    channel.close();
+                }
+            } catch (URISyntaxException e) {
+                // read it as a stream instead
+            }
+        }
+        URLConnection connection = url.openConnection();
+        int size = connection.getContentLength();
+        InputStream input = connection.getInputStream();
+        try {
+            byte[] bytes = new byte[size > 0 ? size : 4096];
+            int length = 0;
+            while (true) {
+                if (length == bytes.length) {
+                    byte[] bigger = new byte[bytes.length * 2];
+                    System.arraycopy(bytes, 0, bigger, 0, length);
+                    bytes = bigger;
+                }
+                int read = input.read(bytes, length, bytes.length - length);
+                if (read < 0) {
+                    break;
+                }
+                length += read;
+            }
+            return ByteBuffer.wrap(bytes, 0, length).slice();
+        } finally {
+            input.close();
+        }
+    }
+
+    /**
+     * Binary searches the sorted keys of the index. The offsets and lengths are checked against
+     * the end of the index before they are used, as hasValidHeader has only checked the header.
+     * @return the comma separated names for the key, or null if it is not there or cannot be read
+     */
+    private static String find(ByteBuffer index, byte[] key) {
+        int limit = index.limit();
+        int low = 0;
+        int high = index.getInt(8) - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int at = index.getInt(12 + 4 * middle);
+            if (at < 12 || at > limit - 4) {
+                return null;
+            }
+            int length = index.getShort(at) & 0xFFFF;
+            if (length > limit - at - 4) {
+                return null;
+            }
+            int compared = compare(index, at + 2, length, key);
+            if (compared < 0) {
+                low = middle + 1;
+            } else if (compared > 0) {
+                high = middle - 1;
+            } else {
+                at += 2 + length;
+                byte[] names = new byte[index.getShort(at) & 0xFFFF];
+                if (names.length > limit - at - 2) {
+                    return null;
+                }
+                for (int i = 0; i < names.length; i++) {
+                    names[i] = index.get(at + 2 + i);
+                }
+                return new String(names, StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    private static int compare(ByteBuffer index, int at, int length, byte[] key) {
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int diff = (index.get(at + i) & 0xFF) - (key[i] & 0xFF);
+            if (diff != 0) {
+                return diff;
+            }
+        }
+        return length - key.length;
+    }
+
+    private static class LoaderIndexes {
+        private List<ByteBuffer> buffers;
+    }
+}
@@ -30,9 +30,14 @@ package com.thoughtworks.paranamer;
 
 import java.io.*;
 import java.lang.reflect.*;
+import java.net.SocketTimeoutException;
 import java.net.URL;
 import java.net.URLConnection;
+import java.time.Duration;
 import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeoutException;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
@@ -54,6 +59,13 @@ public class JavadocParanamer implements Paranamer {
 
     protected interface JavadocProvider {
         InputStream getRawJavadoc(String canonicalClassName) throws IOException;
+
+        /**
+         * Providers that go over the network override this to give up once the budget is used up.
+         */
+        default InputStream getRawJavadoc(String canonicalClassName, Duration budget) throws IOException {
+            return getRawJavadoc(canonicalClassName);
+        }
     }
 
     private final JavadocProvider provider;
@@ -81,17 +93,51 @@ public class JavadocParanamer implements Paranamer {
         this.provider = new UrlJavadocProvider(url);
     }
 
+    /**
+     * @param url base URL of the JavaDocs
+     * @param timeout how long to wait for the server to connect, or to send more of a page, before giving up
+     * @throws FileNotFoundException if the url does not have a <code>/package-list</code>
+     */
+    public JavadocParanamer(URL url, Duration timeout) throws IOException {
+        this.provider = new UrlJavadocProvider(url, timeout);
+    }
+
     public String[] lookupParameterNames(AccessibleObject accessible) {
         return lookupParameterNames(accessible, true);
     }
 
     public String[] lookupParameterNames(AccessibleObject accessible, boolean throwExceptionIfMissing) {
+        return lookup(accessible, throwExceptionIfMissing, null);
+    }
+
+    /**
+     * The budget bounds the wait for a remote server to connect and to send each part of the page,
+     * and the page is given up on at the first read after the budget is used up, however little
+     * the server sends at a time.
+     */
+    @Override
+    public String[] lookupParameterNames(AccessibleObject accessible, boolean throwExceptionIfMissing, Duration budget) {
+        if (budget == null)
+            throw new NullPointerException("budget");
+        return lookup(accessible, throwExceptionIfMissing, budget);
+    }
+
+    private String[] lookup(AccessibleObject accessible, boolean throwExceptionIfMissing, Duration budget) {
         if (!(accessible instanceof Member))
             throw new IllegalArgumentException(accessible.getClass().getCanonicalName());
         try {
             String javadocFilename = getJavadocFilename((Member) accessible);
-            InputStream stream = provider.getRawJavadoc(javadocFilename);
-            String raw = streamToString(stream);
+            String raw;
+            if (budget == null) {
+                raw = streamToString(provider.getRawJavadoc(javadocFilename));
+            } else {
+                long deadline = System.nanoTime() + budget.toNanos();
+                raw = streamToString(new DeadlineInputStream(provider.getRawJavadoc(javadocFilename, budget), deadline, budget));
+                if (System.nanoTime() - deadline > 0) {
+                    if (throwExceptionIfMissing) throw new ParameterNamesNotFoundException(accessible.toString(), new TimeoutException(budget.toString()));
+                    else return Paranamer.EMPTY_NAMES;
+                }
+            }
 
             if (accessible instanceof Method)
                 return getMethodParameterNames((Method) accessible, raw);
@@ -108,6 +154,38 @@ public class JavadocParanamer implements Paranamer {
         }
     }
 
+    /**
+     * Reads the Javadoc page of the class once, and matches every declared method and constructor against it.
+     */
+    @Override
+    public Map<AccessibleObject, String[]> lookupAllParameterNames(Class<?> declaringClass) {
+        Map<AccessibleObject, String[]> allNames = new HashMap<AccessibleObject, String[]>();
+        String raw = null;
+        for (Executable[] executables : new Executable[][] {declaringClass.getDeclaredConstructors(), declaringClass.getDeclaredMethods()}) {
+            for (Executable executable : executables) {
+                if (executable.getParameterCount() == 0) {
+                    allNames.put(executable, EMPTY_NAMES);
+                    continue;
+                }
+                try {
+                    if (raw == null) {
+                        raw = streamToString(provider.getRawJavadoc(getJavadocFilename(executable)));
+                    }
+                    if (executable instanceof Method)
+                        allNames.put(executable, getMethodParameterNames((Method) executable, raw));
+                    else
+                        allNames.put(executable, getConstructorParameterNames((Constructor<?>) executable, raw));
+                } catch (IOException e) {
+                    // no page for the class, so nothing else with parameters will be found either
+                    raw = "";
+                } catch (ParameterNamesNotFoundException e) {
+                    // not documented, leave it out
+                }
+            }
+        }
+        return allNames;
+    }
+
     private String[] getConstructorParameterNames(Constructor<?> cons, String raw) {
         return getParameterNames(cons, cons.getDeclaringClass().getSimpleName(), cons.getParameterTypes(), raw);
     }
@@ -199,11 +277,27 @@ public class JavadocParanamer implements Paranamer {
     }
 
     protected static InputStream urlToStream(URL url) throws IOException {
+        return urlToStream(url, 0);
+    }
+
+    /**
+     * @param timeoutMillis for connecting and for each read, or 0 to wait for as long as it takes
+     */
+    protected static InputStream urlToStream(URL url, int timeoutMillis) throws IOException {
         URLConnection conn = url.openConnection();
+        conn.setConnectTimeout(timeoutMillis);
+        conn.setReadTimeout(timeoutMillis);
         conn.connect();
         return conn.getInputStream();
     }
 
+    private static int toMillis(Duration timeout) {
+        if (timeout == null)
+            return 0;
+        // 0 would mean no timeout at all
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE, timeout.toMillis()));
+    }
+
 
     //////////// Provider Implementations ////////////
 
@@ -234,14 +328,31 @@ public class JavadocParanamer implements Paranamer {
 
     protected static class UrlJavadocProvider implements JavadocProvider {
         private final URL base;
+        private final Duration timeout;
 
         public UrlJavadocProvider(URL base) throws IOException {
+            this(base, null);
+        }
+
+        /**
+         * @param timeout for connecting and for each read, or null to wait for as long as it takes
+         */
+        public UrlJavadocProvider(URL base, Duration timeout) throws IOException {
             this.base = base;
-            streamToString(urlToStream(new URL(base + "/package-list")));
+            this.timeout = timeout;
+            streamToString(urlToStream(new URL(base + "/package-list"), toMillis(timeout)));
         }
 
         public InputStream getRawJavadoc(String fqn) throws IOException {
-            return urlToStream(new URL(base + "/" + fqn));
+            return urlToStream(new URL(base + "/" + fqn), toMillis(timeout));
+        }
+
+        @Override
+        public InputStream getRawJavadoc(String fqn, Duration budget) throws IOException {
+            if (budget.isNegative() || budget.isZero())
+                throw new SocketTimeoutException(budget.toString());
+            Duration shorter = timeout == null || budget.compareTo(timeout) < 0 ? budget : timeout;
+            return urlToStream(new URL(base + "/" + fqn), toMillis(shorter));
         }
     }
 
@@ -260,4 +371,37 @@ public class JavadocParanamer implements Paranamer {
         }
     }
 
+    /**
+     * Fails the first read after the deadline, so that a server that sends a little at a time,
+     * each part well within the read timeout, cannot hold the caller for longer than the budget.
+     */
+    private static class DeadlineInputStream extends FilterInputStream {
+        private final long deadline;
+        private final Duration budget;
+
+        DeadlineInputStream(InputStream in, long deadline, Duration budget) {
+            super(in);
+            this.deadline = deadline;
+            this.budget = budget;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkDeadline();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            checkDeadline();
+            return super.read(b, off, len);
+        }
+
+        private void checkDeadline() throws SocketTimeoutException {
+            if (System.nanoTime() - deadline > 0) {
+                throw new SocketTimeoutException(budget.toString());
+            }
+        }
+    }
+
 }
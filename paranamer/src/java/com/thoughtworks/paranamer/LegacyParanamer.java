@@ -31,6 +31,10 @@
 package com.thoughtworks.paranamer;
 
 import java.lang.reflect.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Default implementation of Paranamer reads from a post-compile added field called '__PARANAMER_DATA'
@@ -49,6 +53,22 @@ public class LegacyParanamer implements Paranamer {
         + "lookupParameterNames java.lang.AccessibleObject,boolean methodOrCtor,throwExceptionIfMissing \n"
         + "getParameterTypeName java.lang.Class cls\n";
 
+    private static final ClassValue<String> TYPE_NAMES = new ClassValue<String>() {
+        protected String computeValue(Class<?> type) {
+            return getParameterTypeName(type);
+        }
+    };
+
+    /**
+     * The parsed data of each class, or Index.EMPTY for one without any. Hung off the class
+     * itself, so it goes when the class is unloaded.
+     */
+    private static final ClassValue<Index> INDEXES = new ClassValue<Index>() {
+        protected Index computeValue(Class<?> type) {
+            return Index.parse(getParameterListResource(type));
+        }
+    };
+
     public LegacyParanamer() {
     }
 
@@ -59,19 +79,22 @@ public class LegacyParanamer implements Paranamer {
     public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
         Executable executable = (Executable) methodOrCtor;
 
-        Class<?>[] types = executable.getParameterTypes();
-        Class<?> declaringClass = executable.getDeclaringClass();
-        String name = executable instanceof Constructor ? "<init>" : executable.getName();
-
-        if (types.length == 0) {
+        if (executable.getParameterCount() == 0) {
             return EMPTY_NAMES;
         }
-        final String parameterTypeNames = getParameterTypeNamesCSV(types);
-        final String[] names = getParameterNames(declaringClass, parameterTypeNames, name + SPACE);
+        Class<?> declaringClass = executable.getDeclaringClass();
+        Index index = INDEXES.get(declaringClass);
+        if (index == Index.EMPTY && !throwExceptionIfMissing) {
+            // most classes have no data at all, and that is known from the first lookup on
+            return Paranamer.EMPTY_NAMES;
+        }
+        Class<?>[] types = executable.getParameterTypes();
+        String name = executable instanceof Constructor ? "<init>" : executable.getName();
+        final String[] names = index.get(name, types);
         if ( names == null ){
             if (throwExceptionIfMissing) {
             throw new ParameterNamesNotFoundException("No parameter names found for class '"+declaringClass+"', methodOrCtor " + name
-                    +" and parameter types "+parameterTypeNames);
+                    +" and parameter types "+getParameterTypeNamesCSV(types));
             } else {
                 return Paranamer.EMPTY_NAMES;
             }
@@ -79,22 +102,47 @@ public class LegacyParanamer implements Paranamer {
         return names;
     }
 
-    private static String[] getParameterNames(Class<?> declaringClass, String parameterTypes, String prefix) {
-        String data = getParameterListResource(declaringClass);
-        String line = findFirstMatchingLine(data, prefix + parameterTypes + SPACE);
-        String[] parts = line.split(SPACE);
-        // assumes line structure: constructorName parameterTypes parameterNames
-        if (parts.length == 3 && parts[1].equals(parameterTypes)) {
-            String parameterNames = parts[2];
-            return parameterNames.split(COMMA);
+    /**
+     * Answered from the same per class index as single lookups.
+     */
+    @Override
+    public Map<AccessibleObject, String[]> lookupAllParameterNames(Class<?> declaringClass) {
+        Map<AccessibleObject, String[]> allNames = new HashMap<AccessibleObject, String[]>();
+        Index index = INDEXES.get(declaringClass);
+        for (Executable[] executables : new Executable[][] {declaringClass.getDeclaredConstructors(), declaringClass.getDeclaredMethods()}) {
+            for (Executable executable : executables) {
+                if (executable.getParameterCount() == 0) {
+                    allNames.put(executable, EMPTY_NAMES);
+                    continue;
+                }
+                if (index == Index.EMPTY) {
+                    continue;
+                }
+                Class<?>[] types = executable.getParameterTypes();
+                String name = executable instanceof Constructor ? "<init>" : executable.getName();
+                String[] names = index.get(name, types);
+                if (names != null) {
+                    allNames.put(executable, names);
+                }
+            }
         }
-        return Paranamer.EMPTY_NAMES;
+        return allNames;
+    }
+
+    /**
+     * Whether the class has <code>__PARANAMER_DATA</code> with any names in it. Worked out on
+     * the first lookup for the class and remembered, for as long as the class is loaded.
+     * @param declaringClass the class in question
+     * @return true if there is data to look names up in
+     */
+    public boolean hasParameterData(Class<?> declaringClass) {
+        return INDEXES.get(declaringClass) != Index.EMPTY;
     }
 
     static String getParameterTypeNamesCSV(Class<?>[] parameterTypes) {
-        StringBuffer sb = new StringBuffer();
+        StringBuilder sb = new StringBuilder();
         for (int i = 0; i < parameterTypes.length; i++) {
-            sb.append(getParameterTypeName(parameterTypes[i]));
+            sb.append(TYPE_NAMES.get(parameterTypes[i]));
             if (i < parameterTypes.length - 1) {
                 sb.append(COMMA);
             }
@@ -103,67 +151,219 @@ public class LegacyParanamer implements Paranamer {
     }
 
     private static String getParameterListResource(Class<?> declaringClass) {
-        try {
-            Field field = declaringClass.getDeclaredField("__PARANAMER_DATA");
-            // TODO create acc test which finds field?
-            // TODO create acc test which does not find field?
-            // TODO create acc test what to do with private? access anyway?
-            // TODO create acc test with non static field?
-            // TODO create acc test with another type of field?
+        // scanned for, rather than asked for by name, as getDeclaredField would throw
+        // (and fill in the stack trace of) a NoSuchFieldException for most classes
+        Field[] fields = declaringClass.getDeclaredFields();
+        String data = getStaticString(fields, "__PARANAMER_DATA");
+        if (data == null) {
+            return null;
+        }
+        // data too big for one constant carries on in __PARANAMER_DATA_1, __PARANAMER_DATA_2, ..
+        String more = getStaticString(fields, "__PARANAMER_DATA_1");
+        if (more == null) {
+            return data;
+        }
+        StringBuilder joined = new StringBuilder(data);
+        for (int i = 2; more != null; i++) {
+            joined.append(more);
+            more = getStaticString(fields, "__PARANAMER_DATA_" + i);
+        }
+        return joined.toString();
+    }
+
+    private static String getStaticString(Field[] fields, String name) {
+        for (Field field : fields) {
+            if (!field.getName().equals(name)) {
+                continue;
+            }
             if(!Modifier.isStatic(field.getModifiers()) || !field.getType().equals(String.class)) {
                 return null;
             }
-            return (String) field.get(null);
-        } catch (NoSuchFieldException e) {
-            return null;
-        } catch (IllegalAccessException e) {
-            return null;
+            try {
+                return (String) field.get(null);
+            } catch (IllegalAccessException e) {
+                return null;
+            }
         }
+        return null;
     }
 
     /**
-     * Filter the mappings and only return lines matching the prefix passed in.
-     * @param data the data encoding the mappings
-     * @param prefix the String prefix
-     * @return A list of lines that match the prefix
+     * The name of a type as written in the data: java.lang.String, int[], java.lang.Object[][].
      */
-    private static String findFirstMatchingLine(String data, String prefix) {
-        if (data == null) {
-            return "";
+    private static String getParameterTypeName(Class<?> cls){
+        int arrayNestingDepth = 0;
+        while (cls.isArray()) {
+            arrayNestingDepth++;
+            cls = cls.getComponentType();
+        }
+        if (arrayNestingDepth == 0) {
+            return cls.getName();
         }
-        int ix = data.indexOf(prefix);
-        if (ix >= 0) {
-            int iy = data.indexOf("\n", ix);
-            if(iy >0) {
-                return data.substring(ix,iy);
+        StringBuilder sb = new StringBuilder(cls.getName());
+        for (int k = 0; k < arrayNestingDepth; k++) {
+            sb.append("[]");
+        }
+        return sb.toString();
+    }
+
+    /**
+     * The data of a class, parsed into a hash table of its methods and constructors by name.
+     * Overloads with the same name are chained, and told apart by their parameter types.
+     */
+    private static final class Index {
+
+        private static final Index EMPTY = new Index(new Entry[1]);
+
+        private final Entry[] table;
+
+        private Index(Entry[] table) {
+            this.table = table;
+        }
+
+        static Index parse(String data) {
+            if (data == null) {
+                return EMPTY;
+            }
+            List<Entry> entries = data.startsWith("v2.") ? decode(data) : parseLines(data);
+            if (entries.isEmpty()) {
+                return EMPTY;
+            }
+            Entry[] table = new Entry[Integer.highestOneBit(entries.size() * 2 - 1) << 1];
+            Entry[] last = new Entry[table.length];
+            for (Entry entry : entries) {
+                // appended, so that where a method appears more than once, the first line wins
+                int slot = entry.methodName.hashCode() & (table.length - 1);
+                if (last[slot] == null) {
+                    table[slot] = entry;
+                } else {
+                    last[slot].next = entry;
+                }
+                last[slot] = entry;
+            }
+            return new Index(table);
+        }
+
+        /**
+         * v1: a line of "[className] methodName parameterTypes parameterNames" per method.
+         */
+        private static List<Entry> parseLines(String data) {
+            List<Entry> entries = new ArrayList<Entry>();
+            int start = 0;
+            while (start < data.length()) {
+                int end = data.indexOf('\n', start);
+                if (end < 0) {
+                    end = data.length();
+                }
+                Entry entry = Entry.parse(data.substring(start, end).trim());
+                if (entry != null) {
+                    entries.add(entry);
+                }
+                start = end + 1;
+            }
+            return entries;
+        }
+
+        /**
+         * v2, as written by QdoxParanamerGenerator.Compact: after the version line, a table of
+         * strings, then each method as indexes into it. Numbers are varints of 5 bits to a char.
+         * Data that is cut short or otherwise does not add up is taken as no data.
+         */
+        private static List<Entry> decode(String data) {
+            List<Entry> entries = new ArrayList<Entry>();
+            int[] at = {data.indexOf('\n') + 1};
+            try {
+                String[] strings = new String[readVarint(data, at)];
+                for (int i = 0; i < strings.length; i++) {
+                    int length = readVarint(data, at);
+                    strings[i] = data.substring(at[0], at[0] + length);
+                    at[0] += length;
+                }
+                int methods = readVarint(data, at);
+                for (int m = 0; m < methods; m++) {
+                    String methodName = strings[readVarint(data, at)];
+                    String[] typeNames = new String[readVarint(data, at)];
+                    for (int i = 0; i < typeNames.length; i++) {
+                        typeNames[i] = strings[readVarint(data, at)];
+                    }
+                    String[] parameterNames = new String[typeNames.length];
+                    for (int i = 0; i < parameterNames.length; i++) {
+                        parameterNames[i] = strings[readVarint(data, at)];
+                    }
+                    entries.add(new Entry(methodName, typeNames, parameterNames));
+                }
+            } catch (IndexOutOfBoundsException e) {
+                return new ArrayList<Entry>();
             }
+            return entries;
+        }
+
+        private static int readVarint(String data, int[] at) {
+            int value = 0;
+            for (int shift = 0; ; shift += 5) {
+                int bits = data.charAt(at[0]++) - '!';
+                if (bits < 0 || bits >= 64 || shift > 25) {
+                    throw new IndexOutOfBoundsException("not a varint at " + (at[0] - 1));
+                }
+                value |= (bits & 31) << shift;
+                if (bits < 32) {
+                    // no count or index can be more than there are chars
+                    if (value > data.length()) {
+                        throw new IndexOutOfBoundsException("too big at " + (at[0] - 1));
+                    }
+                    return value;
+                }
+            }
+        }
+
+        String[] get(String methodName, Class<?>[] types) {
+            for (Entry entry = table[methodName.hashCode() & (table.length - 1)]; entry != null; entry = entry.next) {
+                if (entry.matches(methodName, types)) {
+                    return entry.parameterNames;
+                }
+            }
+            return null;
         }
-        return "";
     }
 
+    /**
+     * The names of one method or constructor, and the next with the same hash, if any.
+     * GeneratedParanamer chains them in the same way.
+     */
+    static final class Entry {
+        private final String methodName;
+        private final String[] typeNames;
+        final String[] parameterNames;
+        Entry next;
 
-    private static String getParameterTypeName(Class<?> cls){
-        String parameterTypeNameName = cls.getName();
-        parameterTypeNameName = parameterTypeNameName.replace("[J", "[Xlong")
-                .replace("[I", "[Xint")
-                .replace("[Z", "[Xboolean")
-                .replace("[S", "[Xshort")
-                .replace("[F", "[Xfloat")
-                .replace("[D", "[Xdouble")
-                .replace("[B", "[Xbyte")
-                .replace("[C", "[Xchar");
-        int arrayNestingDepth = 0;
-        int ix = parameterTypeNameName.indexOf("[");
-        while (ix>-1){
-            arrayNestingDepth++;
-            parameterTypeNameName=parameterTypeNameName.replaceFirst("(\\[\\w)|(\\[)","");
-            ix = parameterTypeNameName.indexOf("[");
+        Entry(String methodName, String[] typeNames, String[] parameterNames) {
+            this.methodName = methodName;
+            this.typeNames = typeNames;
+            this.parameterNames = parameterNames;
         }
-        parameterTypeNameName = parameterTypeNameName.replaceFirst(";","");
-        for (int k=0;k<arrayNestingDepth;k++){
-            parameterTypeNameName = parameterTypeNameName+"[]";
+
+        /**
+         * @param line [className] methodName parameterTypes parameterNames
+         * @return the entry, or null for the version line and anything else that is not one
+         */
+        static Entry parse(String line) {
+            String[] parts = line.split(SPACE);
+            if (parts.length < 3) {
+                return null;
+            }
+            return new Entry(parts[parts.length - 3], parts[parts.length - 2].split(COMMA), parts[parts.length - 1].split(COMMA));
         }
-        return    parameterTypeNameName;
 
+        boolean matches(String methodName, Class<?>[] types) {
+            if (types.length != typeNames.length || !this.methodName.equals(methodName)) {
+                return false;
+            }
+            for (int i = 0; i < types.length; i++) {
+                if (!typeNames[i].equals(TYPE_NAMES.get(types[i]))) {
+                    return false;
+                }
+            }
+            return true;
+        }
     }
 }
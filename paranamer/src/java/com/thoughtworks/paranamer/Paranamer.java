@@ -35,6 +35,9 @@ import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
 
 /**
  * Paranamer allows lookups of methods and constructors by parameter names.
@@ -81,5 +84,53 @@ public interface Paranamer {
 	 */
 	public String[] lookupParameterNames(AccessibleObject methodOrConstructor, boolean throwExceptionIfMissing);
 
+	/**
+	 * Lookup the parameter names of a given method, spending no more than the given budget on it.
+	 * Implementations that do I/O (a remote Javadoc server, say) honour the budget; the default
+	 * ignores it, which is fine for everything that only reads class data already in memory.
+	 *
+	 * @param methodOrConstructor
+	 *            the {@link Method} or {@link Constructor} for which the parameter names
+	 *            are looked up.
+	 * @param throwExceptionIfMissing whether to throw an exception if no Paranamer data found (versus return null).
+	 * @param budget how long the lookup may take.
+	 * @return A list of the parameter names.
+	 * @throws ParameterNamesNotFoundException
+	 *             if no parameter names were found, or the budget ran out first (in which case the
+	 *             exception carries the timeout as its cause).
+	 * @throws NullPointerException
+	 *             if a parameter is null.
+	 */
+	public default String[] lookupParameterNames(AccessibleObject methodOrConstructor, boolean throwExceptionIfMissing, Duration budget) {
+		return lookupParameterNames(methodOrConstructor, throwExceptionIfMissing);
+	}
+
+	/**
+	 * Lookup the parameter names of all the methods and constructors declared by a given class.
+	 * Implementations that read their data per class (class bytes, <code>__PARANAMER_DATA</code>,
+	 * a Javadoc page) override this to do that once, rather than once per method.
+	 *
+	 * @param declaringClass
+	 *            the {@link Class} whose declared methods and constructors are looked up.
+	 * @return A map from each declared {@link Method} and {@link Constructor} to its parameter names.
+	 *         Methods and constructors with parameters for which no names were found are not in the map.
+	 * @throws NullPointerException
+	 *             if the parameter is null.
+	 * @throws SecurityException
+	 *             if reflection is not permitted on the {@link Class}
+	 */
+	public default Map<AccessibleObject, String[]> lookupAllParameterNames(Class<?> declaringClass) {
+		Map<AccessibleObject, String[]> allNames = new HashMap<AccessibleObject, String[]>();
+		for (Executable[] executables : new Executable[][] {declaringClass.getDeclaredConstructors(), declaringClass.getDeclaredMethods()}) {
+			for (Executable executable : executables) {
+				String[] names = executable.getParameterCount() == 0 ? EMPTY_NAMES : lookupParameterNames(executable, false);
+				if (names.length == executable.getParameterCount()) {
+					allNames.put(executable, names);
+				}
+			}
+		}
+		return allNames;
+	}
+
 
 }
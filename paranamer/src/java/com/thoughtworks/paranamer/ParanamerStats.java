@@ -0,0 +1,155 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.thoughtworks.paranamer;
+
+/**
+ * A snapshot of the statistics of a {@link CachingParanamer}.
+ */
+public class ParanamerStats {
+
+    /**
+     * The upper bounds, in nanoseconds, of the buckets of the load time histogram.
+     * The last bucket has no upper bound.
+     */
+    private static final long[] LOAD_TIME_BOUNDS = {
+            1000L, 10000L, 100000L, 1000000L, 10000000L, 100000000L, 1000000000L
+    };
+
+    private final long hitCount;
+    private final long missCount;
+    private final long evictionCount;
+    private final long size;
+    private final long estimatedBytes;
+    private final long totalLoadTime;
+    private final long[] loadTimeHistogram;
+
+    public ParanamerStats(long hitCount, long missCount, long evictionCount, long size, long estimatedBytes,
+                          long totalLoadTime, long[] loadTimeHistogram) {
+        this.hitCount = hitCount;
+        this.missCount = missCount;
+        this.evictionCount = evictionCount;
+        this.size = size;
+        this.estimatedBytes = estimatedBytes;
+        this.totalLoadTime = totalLoadTime;
+        this.loadTimeHistogram = loadTimeHistogram.clone();
+    }
+
+    /**
+     * @return the number of buckets in the load time histogram
+     */
+    static int loadTimeBuckets() {
+        return LOAD_TIME_BOUNDS.length + 1;
+    }
+
+    /**
+     * @param nanos how long a load took
+     * @return the bucket of the load time histogram it falls in
+     */
+    static int loadTimeBucket(long nanos) {
+        int bucket = 0;
+        while (bucket < LOAD_TIME_BOUNDS.length && nanos >= LOAD_TIME_BOUNDS[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+
+    /**
+     * @return the lookups answered from the cache
+     */
+    public long getHitCount() {
+        return hitCount;
+    }
+
+    /**
+     * @return the lookups that had to ask the delegate paranamer
+     */
+    public long getMissCount() {
+        return missCount;
+    }
+
+    /**
+     * @return the hits as a fraction of all lookups, or 1 if there have been none
+     */
+    public double getHitRate() {
+        long lookups = hitCount + missCount;
+        return lookups == 0 ? 1.0 : (double) hitCount / lookups;
+    }
+
+    /**
+     * @return the entries evicted to keep a bounded cache within its bound
+     */
+    public long getEvictionCount() {
+        return evictionCount;
+    }
+
+    /**
+     * @return the entries in the cache, or -1 if the cache can't tell
+     */
+    public long getSize() {
+        return size;
+    }
+
+    /**
+     * @return a rough estimate of the bytes the entries retain, or -1 if the cache can't tell
+     */
+    public long getEstimatedBytes() {
+        return estimatedBytes;
+    }
+
+    /**
+     * @return the nanoseconds spent in the delegate paranamer, over all misses
+     */
+    public long getTotalLoadTime() {
+        return totalLoadTime;
+    }
+
+    /**
+     * @return the number of misses by how long the delegate took, bucketed as per
+     * {@link #getLoadTimeHistogramBounds()}
+     */
+    public long[] getLoadTimeHistogram() {
+        return loadTimeHistogram.clone();
+    }
+
+    /**
+     * @return the upper bounds in nanoseconds (1 microsecond to 1 second, by powers of ten) of
+     * all but the last bucket of the load time histogram, which holds the slower loads.
+     */
+    public static long[] getLoadTimeHistogramBounds() {
+        return LOAD_TIME_BOUNDS.clone();
+    }
+
+    @Override
+    public String toString() {
+        return "ParanamerStats{hits=" + hitCount + ", misses=" + missCount + ", evictions=" + evictionCount
+                + ", size=" + size + ", estimatedBytes=" + estimatedBytes + ", totalLoadTime=" + totalLoadTime + "ns}";
+    }
+}
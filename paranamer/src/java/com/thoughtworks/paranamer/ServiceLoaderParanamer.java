@@ -0,0 +1,136 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.thoughtworks.paranamer;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Executable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.WeakHashMap;
+
+/**
+ * Implementation of Paranamer which asks the {@link GeneratedParanamer}s registered as services,
+ * through {@link ServiceLoader}, in the classloader of the class being looked up. They are loaded
+ * the first time a class of that classloader is looked up, and kept for as long as the classloader is.
+ * <p>
+ * Each class that has been looked up holds on to the services of its classloader, in a ClassValue,
+ * so lookups take no lock. The services are instances of classes of that classloader, so they are
+ * only shared between its classes through weak references, or they would keep it from being
+ * garbage collected.
+ * </p>
+ */
+public class ServiceLoaderParanamer implements Paranamer {
+
+    private final Map<ClassLoader, WeakReference<List<GeneratedParanamer>>> services = new WeakHashMap<ClassLoader, WeakReference<List<GeneratedParanamer>>>();
+
+    private final ClassValue<List<GeneratedParanamer>> servicesOfClass = new ClassValue<List<GeneratedParanamer>>() {
+        @Override
+        protected List<GeneratedParanamer> computeValue(Class<?> type) {
+            ClassLoader loader = type.getClassLoader();
+            return loader == null ? Collections.<GeneratedParanamer>emptyList() : getServices(loader);
+        }
+    };
+
+    public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+        return lookupParameterNames(methodOrConstructor, true);
+    }
+
+    public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+        Executable executable = (Executable) methodOrCtor;
+        if (executable.getParameterCount() == 0) {
+            return Paranamer.EMPTY_NAMES;
+        }
+        Class<?> declaringClass = executable.getDeclaringClass();
+        String className = declaringClass.getName();
+        for (GeneratedParanamer paranamer : servicesOfClass.get(declaringClass)) {
+            if (paranamer.hasParameterNames(className)) {
+                String[] names = paranamer.lookupParameterNames(methodOrCtor, false);
+                if (names != Paranamer.EMPTY_NAMES) {
+                    return names;
+                }
+            }
+        }
+        if (throwExceptionIfMissing) {
+            throw new ParameterNamesNotFoundException("No generated parameter names for " + methodOrCtor);
+        }
+        return Paranamer.EMPTY_NAMES;
+    }
+
+    private List<GeneratedParanamer> getServices(ClassLoader loader) {
+        List<GeneratedParanamer> found = getShared(loader);
+        if (found != null) {
+            return found;
+        }
+        // loaded without holding the lock, so another loader's classes are not held up
+        List<GeneratedParanamer> loaded = loadServices(loader);
+        synchronized (services) {
+            found = getShared(loader);
+            if (found != null) {
+                return found;
+            }
+            services.put(loader, new WeakReference<List<GeneratedParanamer>>(loaded));
+            return loaded;
+        }
+    }
+
+    private List<GeneratedParanamer> getShared(ClassLoader loader) {
+        synchronized (services) {
+            WeakReference<List<GeneratedParanamer>> shared = services.get(loader);
+            return shared == null ? null : shared.get();
+        }
+    }
+
+    private static List<GeneratedParanamer> loadServices(ClassLoader loader) {
+        List<GeneratedParanamer> found = new ArrayList<GeneratedParanamer>();
+        Iterator<Paranamer> iterator = ServiceLoader.load(Paranamer.class, loader).iterator();
+        try {
+            while (iterator.hasNext()) {
+                try {
+                    Paranamer paranamer = iterator.next();
+                    if (paranamer instanceof GeneratedParanamer) {
+                        found.add((GeneratedParanamer) paranamer);
+                    }
+                } catch (ServiceConfigurationError e) {
+                    // one that cannot be made is left out
+                }
+            }
+        } catch (ServiceConfigurationError e) {
+            // nor can any after it be found
+        }
+        return found;
+    }
+}
@@ -33,8 +33,15 @@ package com.thoughtworks.paranamer;
 import org.junit.Assert;
 import org.junit.Test;
 
+import javax.inject.Named;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Method;
 import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -77,4 +84,123 @@ public class AdaptiveParanamerTestCase {
 
     }
 
-}
\ No newline at end of file
+    @Test
+    public void testLookupAllParameterNamesPrefersEarlierParanamers() throws NoSuchMethodException {
+        Paranamer paranamer = new AdaptiveParanamer(new AnnotationParanamer(), new BytecodeReadingParanamer());
+        Map<AccessibleObject, String[]> allNames = paranamer.lookupAllParameterNames(Two.class);
+        Assert.assertEquals(Arrays.asList("first"), Arrays.asList(allNames.get(Two.class.getMethod("two", String.class))));
+        Assert.assertEquals(Arrays.asList("second"), Arrays.asList(allNames.get(Two.class.getMethod("three", String.class))));
+    }
+
+    @Test
+    public void testRemembersWhichParanamerHasNamesForAClass() throws NoSuchMethodException {
+        final int[] asked = new int[2];
+        Paranamer without = new NullParanamer() {
+            @Override
+            public String[] lookupParameterNames(AccessibleObject methodOrConstructor, boolean throwExceptionIfMissing) {
+                asked[0]++;
+                return super.lookupParameterNames(methodOrConstructor, throwExceptionIfMissing);
+            }
+        };
+        Paranamer with = new BytecodeReadingParanamer() {
+            @Override
+            public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+                asked[1]++;
+                return super.lookupParameterNames(methodOrCtor, throwExceptionIfMissing);
+            }
+        };
+        Paranamer paranamer = new AdaptiveParanamer(true, without, with);
+        Assert.assertEquals(Arrays.asList("one"), Arrays.asList(paranamer.lookupParameterNames(Two.class.getMethod("two", String.class))));
+        Assert.assertEquals(Arrays.asList("second"), Arrays.asList(paranamer.lookupParameterNames(Two.class.getMethod("three", String.class))));
+        Assert.assertEquals(1, asked[0]);
+        Assert.assertEquals(2, asked[1]);
+
+        // not remembering
+        asked[0] = 0;
+        paranamer = new AdaptiveParanamer(without, with);
+        paranamer.lookupParameterNames(Two.class.getMethod("two", String.class));
+        paranamer.lookupParameterNames(Two.class.getMethod("three", String.class));
+        Assert.assertEquals(2, asked[0]);
+    }
+
+    @Test
+    public void testFallsBackToAllParanamersWhenTheRememberedOneMisses() throws NoSuchMethodException {
+        Paranamer paranamer = new AdaptiveParanamer(true, new AnnotationParanamer(new NullParanamer()), new BytecodeReadingParanamer());
+        Assert.assertEquals(Arrays.asList("first"), Arrays.asList(paranamer.lookupParameterNames(Two.class.getMethod("two", String.class))));
+        Assert.assertEquals(Arrays.asList("second"), Arrays.asList(paranamer.lookupParameterNames(Two.class.getMethod("three", String.class))));
+        try {
+            paranamer.lookupParameterNames(BytecodeReadingParanamerTestCase.HelloService.class.getMethod("hello", String.class));
+            Assert.fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testConcurrentLookupPrefersEarlierParanamersAndCancelsLaterOnes() throws Exception {
+        final CountDownLatch cancelled = new CountDownLatch(1);
+        Paranamer slowWithNames = new Paranamer() {
+            public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+                return lookupParameterNames(methodOrConstructor, true);
+            }
+
+            public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+                try {
+                    Thread.sleep(200);
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                return new String[] {"slow"};
+            }
+        };
+        Paranamer hanging = new Paranamer() {
+            public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+                return lookupParameterNames(methodOrConstructor, true);
+            }
+
+            public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+                try {
+                    Thread.sleep(60000);
+                } catch (InterruptedException e) {
+                    cancelled.countDown();
+                }
+                return Paranamer.EMPTY_NAMES;
+            }
+        };
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Paranamer paranamer = new AdaptiveParanamer(executor, new NullParanamer(), slowWithNames, new BytecodeReadingParanamer(), hanging);
+            Method two = Two.class.getMethod("two", String.class);
+            Assert.assertEquals(Arrays.asList("slow"), Arrays.asList(paranamer.lookupParameterNames(two)));
+            Assert.assertTrue(cancelled.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testConcurrentLookupThrowsWhenNoParanamerHasNames() throws Exception {
+        ExecutorService executor = Executors.newCachedThreadPool();
+        try {
+            Paranamer paranamer = new AdaptiveParanamer(executor, new NullParanamer(), new BytecodeReadingParanamer());
+            Method hello = BytecodeReadingParanamerTestCase.HelloService.class.getMethod("hello", String.class);
+            Assert.assertEquals(0, paranamer.lookupParameterNames(hello, false).length);
+            try {
+                paranamer.lookupParameterNames(hello);
+                Assert.fail("should have barfed");
+            } catch (ParameterNamesNotFoundException e) {
+                // expected
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    public static class Two {
+        public void two(@Named("first") String one) {
+        }
+        public void three(String second) {
+        }
+    }
+
+}
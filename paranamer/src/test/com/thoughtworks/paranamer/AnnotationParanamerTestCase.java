@@ -39,6 +39,8 @@ import java.lang.annotation.Annotation;
 import java.lang.annotation.ElementType;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.lang.reflect.AccessibleObject;
+import java.util.Map;
 
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 
@@ -143,6 +145,27 @@ public class AnnotationParanamerTestCase {
         }
     }
 
+    @Test
+    public void testLookupAllParameterNamesAsksTheFallbackOnce() throws NoSuchMethodException {
+        final int[] calls = new int[1];
+        Paranamer paranamer = new AnnotationParanamer(new BytecodeReadingParanamer() {
+            @Override
+            public Map<AccessibleObject, String[]> lookupAllParameterNames(Class<?> declaringClass) {
+                calls[0]++;
+                return super.lookupAllParameterNames(declaringClass);
+            }
+        });
+        Map<AccessibleObject, String[]> allNames = paranamer.lookupAllParameterNames(Orange.class);
+        Assert.assertEquals(1, calls[0]);
+        Assert.assertArrayEquals(new String[] {"foo", "bar"}, allNames.get(Orange.class.getConstructors()[0]));
+        Assert.assertArrayEquals(new String[] {"FFA500", "baz"}, allNames.get(Orange.class.getMethod("set", String.class, int.class)));
+    }
 
+    public static class Orange {
+        public Orange(String foo, @Named("bar") String otherParam) {
+        }
+        public void set(@Named("FFA500") String color, int baz) {
+        }
+    }
 
 }
@@ -34,10 +34,23 @@ import org.junit.Before;
 import org.junit.Ignore;
 import org.junit.Test;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static junit.framework.Assert.assertEquals;
 import static org.junit.Assert.*;
@@ -304,6 +317,152 @@ public class BytecodeReadingParanamerTestCase extends AbstractParanamerTestCase
 
 
 
+    @Test
+    public void testWholeClassModeReadsTheClassOnceForManyLookups() throws NoSuchMethodException {
+        final int[] reads = new int[1];
+        BytecodeReadingParanamer asm = new BytecodeReadingParanamer(true) {
+            @Override
+            protected ByteBuffer getClassBytes(Class<?> clazz) throws IOException {
+                reads[0]++;
+                return super.getClassBytes(clazz);
+            }
+        };
+        Class<SpecificMethodSearchable> c = SpecificMethodSearchable.class;
+        assertThatParameterNamesMatch("foo", asm.lookupParameterNames(c.getConstructor(String.class)));
+        assertThatParameterNamesMatch("s", asm.lookupParameterNames(c.getMethod("singleString", String.class)));
+        assertThatParameterNamesMatch("i", asm.lookupParameterNames(c.getMethod("staticWithParameter", int.class)));
+        assertThatParameterNamesMatch("d,s", asm.lookupParameterNames(c.getMethod("mixedParameters", double.class, String.class)));
+        assertThatParameterNamesMatch("strings2D", asm.lookupParameterNames(c.getMethod("twoDimensionalArray", String[][].class)));
+        assertThatParameterNamesMatch("long2D", asm.lookupParameterNames(c.getMethod("twoDimensionalArray", long[][].class)));
+        assertThatParameterNamesMatch("others", asm.lookupParameterNames(c.getMethod("otherArray", Other[].class)));
+        assertThatParameterNamesMatch("", asm.lookupParameterNames(c.getMethod("noParameters")));
+        assertEquals(1, reads[0]);
+    }
+
+    @Test
+    public void testWholeClassModeStillReportsMissingDebugInfo() throws NoSuchMethodException {
+        BytecodeReadingParanamer asm = new BytecodeReadingParanamer(true);
+        Method method = SpecificMethodSearchable.class.getMethod("unsupportedParameterNames", String.class);
+        assertEquals(0, asm.lookupParameterNames(method, false).length);
+        try {
+            asm.lookupParameterNames(method);
+            fail("Should find (arg0) and think this is a debug-free compiled class.");
+        } catch (ParameterNamesNotFoundException ex) {
+            // ok
+        }
+        try {
+            asm.lookupParameterNames(HelloService.class.getDeclaredMethod("hello", String.class));
+            fail("should have barfed as parameter names are erased from interfaces' debug tables");
+        } catch (ParameterNamesNotFoundException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testWholeClassModeWorksForClassesInJars() throws ClassNotFoundException, NoSuchMethodException {
+        URL url = getClass().getResource("/test.jar");
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{url});
+        Class<?> clazz = Class.forName("com.thoughtworks.paranamer.SpecificMethodSearchable", true, classLoader);
+
+        BytecodeReadingParanamer asm = new BytecodeReadingParanamer(true);
+        assertThatParameterNamesMatch("foo", asm.lookupParameterNames(clazz.getConstructor(String.class)));
+    }
+
+    @Test
+    public void testConcurrentLookupsInWholeClassModeReadTheClassOnce() throws Exception {
+        for (final boolean weak : new boolean[] {true, false}) {
+            final AtomicInteger reads = new AtomicInteger();
+            BytecodeReadingParanamer asm = new BytecodeReadingParanamer(true) {
+                @Override
+                protected ByteBuffer getClassBytes(Class<?> clazz) throws IOException {
+                    reads.incrementAndGet();
+                    try {
+                        // make sure the other threads miss while this one is reading
+                        Thread.sleep(100);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    return super.getClassBytes(clazz);
+                }
+            };
+            final Paranamer caching = weak ? new CachingParanamer(asm) : new CachingParanamer.WithoutWeakReferences(asm);
+            final Method[] methods = SpecificMethodSearchable.class.getDeclaredMethods();
+            final CountDownLatch start = new CountDownLatch(1);
+            ExecutorService executor = Executors.newFixedThreadPool(16);
+            try {
+                List<Future<String[]>> results = new ArrayList<Future<String[]>>();
+                for (int i = 0; i < 64; i++) {
+                    final Method method = methods[i % methods.length];
+                    results.add(executor.submit(new Callable<String[]>() {
+                        public String[] call() throws Exception {
+                            start.await();
+                            return caching.lookupParameterNames(method, false);
+                        }
+                    }));
+                }
+                start.countDown();
+                for (Future<String[]> result : results) {
+                    result.get();
+                }
+            } finally {
+                executor.shutdown();
+            }
+            assertEquals(1, reads.get());
+        }
+    }
+
+    @Test
+    public void testLookupAllParameterNamesReadsTheClassOnce() throws NoSuchMethodException {
+        final int[] reads = new int[1];
+        BytecodeReadingParanamer asm = new BytecodeReadingParanamer() {
+            @Override
+            protected ByteBuffer getClassBytes(Class<?> clazz) throws IOException {
+                reads[0]++;
+                return super.getClassBytes(clazz);
+            }
+        };
+        Class<SpecificMethodSearchable> c = SpecificMethodSearchable.class;
+        Map<AccessibleObject, String[]> allNames = asm.lookupAllParameterNames(c);
+        assertEquals(1, reads[0]);
+        assertThatParameterNamesMatch("foo", allNames.get(c.getConstructor(String.class)));
+        assertThatParameterNamesMatch("", allNames.get(c.getConstructor()));
+        assertThatParameterNamesMatch("s", allNames.get(c.getMethod("hasShort", short.class)));
+        assertThatParameterNamesMatch("l", allNames.get(c.getMethod("hasLongs", long[].class)));
+        assertThatParameterNamesMatch("long2D", allNames.get(c.getMethod("twoDimensionalArray", long[][].class)));
+        assertFalse(allNames.containsKey(c.getMethod("unsupportedParameterNames", String.class)));
+        assertEquals(c.getDeclaredConstructors().length + c.getDeclaredMethods().length - 1, allNames.size());
+    }
+
+    @Test
+    public void testRetrievesParameterNamesOfMethodsWithNonAsciiNames() throws NoSuchMethodException {
+        Method method = NonAscii.class.getMethod("gr\u00fc\u00dfe", String.class);
+        assertThatParameterNamesMatch("stra\u00dfe", paranamer.lookupParameterNames(method));
+        assertThatParameterNamesMatch("s", paranamer.lookupParameterNames(NonAscii.class.getMethod("gruesse", String.class)));
+    }
+
+    public static class NonAscii {
+        public void gruesse(String s) {
+        }
+        public void gr\u00fc\u00dfe(String stra\u00dfe) {
+        }
+    }
+
+    @Test
+    public void testClassBytesAreReadWholeFromDirectoriesAndJars() throws Exception {
+        BytecodeReadingParanamer asm = new BytecodeReadingParanamer();
+        ByteBuffer fromDirectory = asm.getClassBytes(SpecificMethodSearchable.class);
+        File classFile = new File(getClass().getResource("/" + SpecificMethodSearchable.class.getName().replace('.', '/') + ".class").toURI());
+        assertEquals(classFile.length(), fromDirectory.remaining());
+        assertEquals(0xCAFEBABE, fromDirectory.getInt(0));
+
+        URL url = getClass().getResource("/test.jar");
+        URLClassLoader classLoader = new URLClassLoader(new URL[]{url});
+        Class<?> clazz = Class.forName("com.thoughtworks.paranamer.SpecificMethodSearchable", true, classLoader);
+        ByteBuffer fromJar = asm.getClassBytes(clazz);
+        assertEquals(0xCAFEBABE, fromJar.getInt(0));
+        assertEquals(fromJar.capacity(), fromJar.remaining());
+    }
+
     class NoArgs {
 	    public void foo() {}
     }
@@ -34,10 +34,20 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Executable;
 import java.lang.reflect.Method;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.Map;
 
 import static junit.framework.Assert.assertEquals;
 
@@ -74,6 +84,24 @@ public class CachingParanamerTestCase {
         doLookupTest(new CachingParanamer.WithoutWeakReferences(paranamer));
     }
 
+    @Test
+    public void testLookupOfParameterNamesForMethod_forClassValueCachingParanamer() {
+        doLookupTest(new CachingParanamer.WithClassValues(paranamer));
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void testOverriddenMakeMethodCacheIsStillUsed() {
+        final Map<AccessibleObject, String[]> map = new HashMap<AccessibleObject, String[]>();
+        doLookupTest(new CachingParanamer(paranamer) {
+            @Override
+            protected Map<AccessibleObject, String[]> makeMethodCache() {
+                return map;
+            }
+        });
+        Assert.assertEquals(1, map.size());
+    }
+
     private void doLookupTest(Paranamer cachingParanamer) {
         String[] paramNames = cachingParanamer.lookupParameterNames(METHOD);
         Assert.assertEquals(Arrays.asList(new String[]{"foo", "bar"}), Arrays.asList(paramNames));
@@ -85,4 +113,270 @@ public class CachingParanamerTestCase {
         Assert.assertEquals(1, count);
     }
 
+    @Test
+    public void testLookupAllParameterNamesWarmsTheCache() throws NoSuchMethodException {
+        Method twoParameters = CachingParanamerTestCase.class.getDeclaredMethod("twoParameters", String.class, String.class);
+        final int[] bulkCount = new int[1];
+        Paranamer delegate = new Paranamer() {
+            public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+                return lookupParameterNames(methodOrConstructor, true);
+            }
+
+            public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+                count++;
+                return new String[]{"foo","bar"};
+            }
+
+            public Map<AccessibleObject, String[]> lookupAllParameterNames(Class<?> declaringClass) {
+                bulkCount[0]++;
+                return Paranamer.super.lookupAllParameterNames(declaringClass);
+            }
+        };
+        for (Paranamer cachingParanamer : new Paranamer[] {new CachingParanamer(delegate), new CachingParanamer.WithoutWeakReferences(delegate),
+                new CachingParanamer.WithClassValues(delegate)}) {
+            count = 0;
+            bulkCount[0] = 0;
+            Map<AccessibleObject, String[]> allNames = cachingParanamer.lookupAllParameterNames(CachingParanamerTestCase.class);
+            int withParameters = count;
+            Assert.assertEquals(1, bulkCount[0]);
+            Assert.assertEquals(Arrays.asList("foo", "bar"), Arrays.asList(allNames.get(twoParameters)));
+
+            // cache hits, for the single and the bulk lookups
+            Assert.assertEquals(Arrays.asList("foo", "bar"), Arrays.asList(cachingParanamer.lookupParameterNames(twoParameters)));
+            Assert.assertEquals(allNames.keySet(), cachingParanamer.lookupAllParameterNames(CachingParanamerTestCase.class).keySet());
+            Assert.assertEquals(withParameters, count);
+            Assert.assertEquals(1, bulkCount[0]);
+        }
+    }
+
+    @Test
+    public void testFreshCopiesOfMethodsAndConstructorsHitTheCache() throws NoSuchMethodException {
+        for (Paranamer cachingParanamer : new Paranamer[] {new CachingParanamer(paranamer), new CachingParanamer.WithoutWeakReferences(paranamer),
+                new CachingParanamer.WithClassValues(paranamer)}) {
+            count = 0;
+            cachingParanamer.lookupParameterNames(SameNames.class.getMethod("SameNames", String.class, String.class));
+            Assert.assertEquals(1, count);
+            cachingParanamer.lookupParameterNames(SameNames.class.getMethod("SameNames", String.class, String.class));
+            Assert.assertEquals(1, count);
+
+            // a constructor with the same name and parameter types is another entry
+            cachingParanamer.lookupParameterNames(SameNames.class.getConstructor(String.class, String.class));
+            Assert.assertEquals(2, count);
+            cachingParanamer.lookupParameterNames(SameNames.class.getConstructor(String.class, String.class));
+            Assert.assertEquals(2, count);
+        }
+    }
+
+    @Test
+    public void testBoundedCacheEvictsEntriesThatWereNotLookedUpAgain() throws NoSuchMethodException {
+        Method a = SameNames.class.getMethod("SameNames", String.class, String.class);
+        Constructor<?> b = SameNames.class.getConstructor(String.class, String.class);
+        Method c = CachingParanamerTestCase.class.getDeclaredMethod("twoParameters", String.class, String.class);
+        Paranamer bounded = new CachingParanamer.Bounded(paranamer, 2);
+        bounded.lookupParameterNames(a);
+        bounded.lookupParameterNames(b);
+        bounded.lookupParameterNames(a);
+        Assert.assertEquals(2, count);
+
+        // a goes round the clock again, b goes
+        bounded.lookupParameterNames(c);
+        Assert.assertEquals(3, count);
+        bounded.lookupParameterNames(a);
+        Assert.assertEquals(3, count);
+        bounded.lookupParameterNames(b);
+        Assert.assertEquals(4, count);
+    }
+
+    @Test
+    public void testBoundedCacheCanBeBoundedByEstimatedBytes() throws NoSuchMethodException {
+        Paranamer bounded = CachingParanamer.Bounded.byEstimatedBytes(paranamer, 1);
+        Method method = SameNames.class.getMethod("SameNames", String.class, String.class);
+        bounded.lookupParameterNames(method);
+        bounded.lookupParameterNames(method);
+        Assert.assertEquals(2, count);
+    }
+
+    @Test
+    public void testStatisticsCountHitsMissesAndEvictions() throws Exception {
+        Method a = SameNames.class.getMethod("SameNames", String.class, String.class);
+        Method c = CachingParanamerTestCase.class.getDeclaredMethod("twoParameters", String.class, String.class);
+        CachingParanamer bounded = new CachingParanamer.Bounded(paranamer, 1);
+        bounded.lookupParameterNames(a);
+        bounded.lookupParameterNames(a);
+        bounded.lookupParameterNames(c);
+        ParanamerStats stats = bounded.getStats();
+        Assert.assertEquals(1, stats.getHitCount());
+        Assert.assertEquals(2, stats.getMissCount());
+        Assert.assertEquals(1, stats.getEvictionCount());
+        Assert.assertEquals(1, stats.getSize());
+        Assert.assertTrue(stats.getEstimatedBytes() > 0);
+        long loads = 0;
+        for (long bucket : stats.getLoadTimeHistogram()) {
+            loads += bucket;
+        }
+        Assert.assertEquals(2, loads);
+
+        CachingParanamer unbounded = new CachingParanamer(paranamer);
+        unbounded.lookupParameterNames(a);
+        unbounded.lookupParameterNames(c);
+        Assert.assertEquals(2, unbounded.getStats().getSize());
+        Assert.assertEquals(0, unbounded.getStats().getEvictionCount());
+    }
+
+    @Test
+    public void testStatisticsAreExposedThroughJmx() throws Exception {
+        CachingParanamer caching = new CachingParanamer(paranamer);
+        caching.lookupParameterNames(METHOD);
+        caching.lookupParameterNames(METHOD);
+        ObjectName name = caching.registerMBean(new ObjectName("com.thoughtworks.paranamer:type=CachingParanamer,name=test"));
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            Assert.assertEquals(1L, server.getAttribute(name, "HitCount"));
+            Assert.assertEquals(1L, server.getAttribute(name, "MissCount"));
+            Assert.assertEquals(0.5, server.getAttribute(name, "HitRate"));
+        } finally {
+            server.unregisterMBean(name);
+        }
+    }
+
+    @Test
+    public void testMissesAreCachedAndRethrownWithoutAStackTrace() throws NoSuchMethodException {
+        Method method = SameNames.class.getMethod("SameNames", String.class, String.class);
+        CachingParanamer caching = new CachingParanamer(new NotFound());
+        for (int i = 0; i < 3; i++) {
+            try {
+                caching.lookupParameterNames(method);
+                Assert.fail("should have barfed");
+            } catch (ParameterNamesNotFoundException e) {
+                Assert.assertEquals(i == 0, e.getStackTrace().length > 0);
+            }
+        }
+        Assert.assertEquals(0, caching.lookupParameterNames(method, false).length);
+        Assert.assertFalse(caching.findParameterNames(method).isPresent());
+        Assert.assertEquals(1, count);
+    }
+
+    @Test
+    public void testMissesThatWereNotThrownAreStillCachedAsMisses() throws NoSuchMethodException {
+        Method method = SameNames.class.getMethod("SameNames", String.class, String.class);
+        CachingParanamer caching = new CachingParanamer(new NotFound());
+        Assert.assertEquals(0, caching.lookupParameterNames(method, false).length);
+        try {
+            caching.lookupParameterNames(method);
+            Assert.fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            // expected
+        }
+        Assert.assertEquals(1, count);
+    }
+
+    @Test
+    public void testMissesOfABulkLookupAreCachedAsMisses() throws NoSuchMethodException {
+        CachingParanamer caching = new CachingParanamer(new NotFound());
+        Assert.assertTrue(caching.lookupAllParameterNames(SameNames.class).isEmpty());
+        int looked = count;
+        try {
+            caching.lookupParameterNames(SameNames.class.getMethod("SameNames", String.class, String.class));
+            Assert.fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            // expected
+        }
+        try {
+            caching.lookupParameterNames(SameNames.class.getConstructor(String.class, String.class));
+            Assert.fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            // expected
+        }
+        Assert.assertEquals(looked, count);
+    }
+
+    @Test
+    public void testMissesWithACauseAreNotCached() throws NoSuchMethodException {
+        Method method = SameNames.class.getMethod("SameNames", String.class, String.class);
+        CachingParanamer caching = new CachingParanamer(new NotFound() {
+            @Override
+            public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+                count++;
+                throw new ParameterNamesNotFoundException("IoException while reading class bytes", new IOException());
+            }
+        });
+        for (int i = 0; i < 2; i++) {
+            try {
+                caching.lookupParameterNames(method);
+                Assert.fail("should have barfed");
+            } catch (ParameterNamesNotFoundException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals(2, count);
+    }
+
+    @Test
+    public void testCachedMissesExpire() throws Exception {
+        Method method = SameNames.class.getMethod("SameNames", String.class, String.class);
+        CachingParanamer caching = new CachingParanamer(new NotFound()).expireMissesAfter(30, TimeUnit.MILLISECONDS);
+        for (int i = 0; i < 2; i++) {
+            if (i > 0) {
+                Thread.sleep(50);
+            }
+            try {
+                caching.lookupParameterNames(method);
+                Assert.fail("should have barfed");
+            } catch (ParameterNamesNotFoundException e) {
+                // expected
+            }
+        }
+        Assert.assertEquals(2, count);
+    }
+
+    @Test
+    public void testFindParameterNames() throws NoSuchMethodException {
+        CachingParanamer caching = new CachingParanamer(paranamer);
+        Method method = SameNames.class.getMethod("SameNames", String.class, String.class);
+        Assert.assertEquals(Arrays.asList("foo", "bar"), Arrays.asList(caching.findParameterNames(method).get()));
+    }
+
+    @Test
+    public void testLookupsThatRanOutOfBudgetAreNotCached() throws NoSuchMethodException {
+        CachingParanamer caching = new CachingParanamer(new Paranamer() {
+            public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+                return lookupParameterNames(methodOrConstructor, true);
+            }
+
+            public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+                count++;
+                throw new ParameterNamesNotFoundException("too slow", new TimeoutException());
+            }
+        });
+        Method method = SameNames.class.getMethod("SameNames", String.class, String.class);
+        Assert.assertSame(Paranamer.EMPTY_NAMES, caching.lookupParameterNames(method, false, Duration.ofMillis(10)));
+        Assert.assertSame(Paranamer.EMPTY_NAMES, caching.lookupParameterNames(method, false, Duration.ofMillis(10)));
+        Assert.assertEquals(2, count);
+    }
+
+    private class NotFound implements Paranamer {
+        public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+            return lookupParameterNames(methodOrConstructor, true);
+        }
+
+        public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+            count++;
+            if (throwExceptionIfMissing) {
+                throw new ParameterNamesNotFoundException("no names");
+            }
+            return Paranamer.EMPTY_NAMES;
+        }
+    }
+
+    public static class SameNames {
+        public SameNames(String foo, String bar) {
+        }
+
+        public void SameNames(String foo, String bar) {
+        }
+    }
+
+    private static void twoParameters(String foo, String bar) {
+    }
+
 }
@@ -0,0 +1,319 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.thoughtworks.paranamer;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Method;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeoutException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class CircuitBreakingParanamerTestCase {
+
+    private static final String FILE_PAGE = "<code><strong><a href=\"../../java/io/File.html#listFiles(java.io.FileFilter)\">listFiles</a></strong>"
+            + "(<a href=\"../../java/io/FileFilter.html\" title=\"interface in java.io\">FileFilter</a>&nbsp;filter)</code>\n";
+
+    private Method method;
+    private int calls;
+    private RuntimeException failure;
+    private boolean missing;
+
+    private final Paranamer delegate = new Paranamer() {
+        public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+            return lookupParameterNames(methodOrConstructor, true);
+        }
+
+        public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+            calls++;
+            if (failure != null) {
+                throw failure;
+            }
+            if (missing) {
+                if (throwExceptionIfMissing) {
+                    throw new ParameterNamesNotFoundException("no names");
+                }
+                return Paranamer.EMPTY_NAMES;
+            }
+            return new String[] {"filter"};
+        }
+    };
+
+    private HttpServer server;
+    private ExecutorService serverThreads;
+    private volatile long pageDelay;
+    private volatile long dripDelay;
+
+    @Before
+    public void setUp() throws Exception {
+        method = File.class.getMethod("listFiles", FileFilter.class);
+    }
+
+    @After
+    public void tearDown() {
+        if (server != null) {
+            server.stop(0);
+            serverThreads.shutdownNow();
+        }
+    }
+
+    @Test
+    public void opensAfterConsecutiveFailuresAndStopsAskingTheDelegate() {
+        CircuitBreakingParanamer breaker = new CircuitBreakingParanamer(delegate, 3, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        failure = new ParameterNamesNotFoundException("down", new IOException("connection refused"));
+        for (int i = 0; i < 3; i++) {
+            assertFalse(breaker.isOpen());
+            assertEquals(0, breaker.lookupParameterNames(method, false).length);
+        }
+        assertTrue(breaker.isOpen());
+        assertEquals(3, calls);
+
+        failure = null;
+        assertSame(Paranamer.EMPTY_NAMES, breaker.lookupParameterNames(method, false));
+        try {
+            breaker.lookupParameterNames(method);
+            fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertEquals(3, calls);
+    }
+
+    @Test
+    public void missesAreNotFailures() {
+        CircuitBreakingParanamer breaker = new CircuitBreakingParanamer(delegate, 1, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        missing = true;
+        assertEquals(0, breaker.lookupParameterNames(method, false).length);
+        try {
+            breaker.lookupParameterNames(method);
+            fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            assertEquals("no names", e.getMessage());
+        }
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void aSuccessInBetweenStartsTheCountAgain() {
+        CircuitBreakingParanamer breaker = new CircuitBreakingParanamer(delegate, 2, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        failure = new IllegalStateException("broken");
+        try {
+            breaker.lookupParameterNames(method, false);
+            fail("should have barfed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        failure = null;
+        assertArrayEquals(new String[] {"filter"}, breaker.lookupParameterNames(method, false));
+        failure = new IllegalStateException("broken");
+        try {
+            breaker.lookupParameterNames(method, false);
+            fail("should have barfed");
+        } catch (IllegalStateException e) {
+            // expected
+        }
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void slowLookupsAreFailuresButStillReturnTheirNames() {
+        CircuitBreakingParanamer breaker = new CircuitBreakingParanamer(delegate, 1, Duration.ZERO, Duration.ofMinutes(1));
+        assertArrayEquals(new String[] {"filter"}, breaker.lookupParameterNames(method));
+        assertTrue(breaker.isOpen());
+        try {
+            breaker.lookupParameterNames(method);
+            fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertEquals(1, calls);
+    }
+
+    @Test
+    public void aProbeAfterTheOpenPeriodClosesItAgain() {
+        CircuitBreakingParanamer breaker = new CircuitBreakingParanamer(delegate, 1, Duration.ofMinutes(1), Duration.ZERO);
+        failure = new ParameterNamesNotFoundException("down", new IOException("connection refused"));
+        breaker.lookupParameterNames(method, false);
+        assertTrue(breaker.isOpen());
+
+        // a failed probe keeps it open
+        breaker.lookupParameterNames(method, false);
+        assertTrue(breaker.isOpen());
+        assertEquals(2, calls);
+
+        failure = null;
+        assertArrayEquals(new String[] {"filter"}, breaker.lookupParameterNames(method, false));
+        assertFalse(breaker.isOpen());
+    }
+
+    @Test
+    public void adaptiveParanamerGoesPastAnOpenCircuit() {
+        CircuitBreakingParanamer breaker = new CircuitBreakingParanamer(delegate, 1, Duration.ofMinutes(1), Duration.ofMinutes(1));
+        Paranamer fallback = new Paranamer() {
+            public String[] lookupParameterNames(AccessibleObject methodOrConstructor) {
+                return lookupParameterNames(methodOrConstructor, true);
+            }
+
+            public String[] lookupParameterNames(AccessibleObject methodOrCtor, boolean throwExceptionIfMissing) {
+                return new String[] {"fallback"};
+            }
+        };
+        AdaptiveParanamer adaptive = new AdaptiveParanamer(breaker, fallback);
+        failure = new ParameterNamesNotFoundException("down", new IOException("connection refused"));
+        assertArrayEquals(new String[] {"fallback"}, adaptive.lookupParameterNames(method));
+        failure = null;
+        assertArrayEquals(new String[] {"fallback"}, adaptive.lookupParameterNames(method));
+        assertEquals(1, calls);
+    }
+
+    @Test
+    public void javadocFromALocalServer() throws Exception {
+        JavadocParanamer javadoc = new JavadocParanamer(startServer(), Duration.ofSeconds(5));
+        assertArrayEquals(new String[] {"filter"}, javadoc.lookupParameterNames(method));
+        assertArrayEquals(new String[] {"filter"}, javadoc.lookupParameterNames(method, true, Duration.ofSeconds(5)));
+    }
+
+    @Test
+    public void javadocTimeoutGivesUpOnASlowServer() throws Exception {
+        JavadocParanamer javadoc = new JavadocParanamer(startServer(), Duration.ofMillis(200));
+        pageDelay = 5000;
+        long start = System.nanoTime();
+        try {
+            javadoc.lookupParameterNames(method);
+            fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        assertTrue(System.nanoTime() - start < 3000000000L);
+    }
+
+    @Test
+    public void javadocBudgetGivesUpOnASlowServer() throws Exception {
+        JavadocParanamer javadoc = new JavadocParanamer(startServer());
+        pageDelay = 5000;
+        long start = System.nanoTime();
+        assertSame(Paranamer.EMPTY_NAMES, javadoc.lookupParameterNames(method, false, Duration.ofMillis(200)));
+        assertTrue(System.nanoTime() - start < 3000000000L);
+    }
+
+    @Test
+    public void javadocBudgetGivesUpOnAServerThatDripsThePage() throws Exception {
+        JavadocParanamer javadoc = new JavadocParanamer(startServer());
+        dripDelay = 50;
+        long start = System.nanoTime();
+        try {
+            javadoc.lookupParameterNames(method, true, Duration.ofMillis(300));
+            fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        // the whole page would take more than ten seconds
+        assertTrue(System.nanoTime() - start < 2000000000L);
+    }
+
+    @Test
+    public void breakerAroundASlowJavadocServerOpens() throws Exception {
+        CircuitBreakingParanamer breaker = new CircuitBreakingParanamer(new JavadocParanamer(startServer(), Duration.ofMillis(100)),
+                2, Duration.ofSeconds(1), Duration.ofMinutes(1));
+        pageDelay = 5000;
+        assertSame(Paranamer.EMPTY_NAMES, breaker.lookupParameterNames(method, false));
+        assertSame(Paranamer.EMPTY_NAMES, breaker.lookupParameterNames(method, false));
+        assertTrue(breaker.isOpen());
+        long start = System.nanoTime();
+        assertSame(Paranamer.EMPTY_NAMES, breaker.lookupParameterNames(method, false));
+        assertTrue(System.nanoTime() - start < 50000000L);
+    }
+
+    private URL startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        serverThreads = Executors.newCachedThreadPool();
+        server.setExecutor(serverThreads);
+        server.createContext("/package-list", new Page("java.io\n", false));
+        server.createContext("/java/io/File.html", new Page(FILE_PAGE, true));
+        server.start();
+        return new URL("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+
+    private class Page implements HttpHandler {
+        private final byte[] body;
+        private final boolean delayed;
+
+        Page(String body, boolean delayed) {
+            this.body = body.getBytes();
+            this.delayed = delayed;
+        }
+
+        public void handle(HttpExchange exchange) throws IOException {
+            try {
+                if (delayed && pageDelay > 0) {
+                    Thread.sleep(pageDelay);
+                }
+                OutputStream out = exchange.getResponseBody();
+                if (delayed && dripDelay > 0) {
+                    // chunked, a byte at a time
+                    exchange.sendResponseHeaders(200, 0);
+                    for (byte b : body) {
+                        out.write(b);
+                        out.flush();
+                        Thread.sleep(dripDelay);
+                    }
+                } else {
+                    exchange.sendResponseHeaders(200, body.length);
+                    out.write(body);
+                }
+                out.close();
+            } catch (InterruptedException e) {
+                exchange.close();
+            }
+        }
+    }
+}
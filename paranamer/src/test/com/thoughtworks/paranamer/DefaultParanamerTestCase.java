@@ -33,7 +33,13 @@ package com.thoughtworks.paranamer;
 import org.junit.Before;
 import org.junit.Test;
 
+import java.lang.reflect.AccessibleObject;
+import java.util.Map;
+
 import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
 
 public class DefaultParanamerTestCase extends AbstractParanamerTestCase {
 
@@ -64,4 +70,85 @@ public class DefaultParanamerTestCase extends AbstractParanamerTestCase {
 
     }
 
+    @Test
+    public void testLookupAllParameterNames() throws NoSuchMethodException {
+        Map<AccessibleObject, String[]> allNames = paranamer.lookupAllParameterNames(ParameterNamesNotFoundException.class);
+        assertArrayEquals(new String[]{"message"}, allNames.get(ParameterNamesNotFoundException.class.getConstructor(String.class)));
+        assertNull(allNames.get(ParameterNamesNotFoundException.class.getConstructor(String.class, Exception.class)));
+        assertArrayEquals(new String[0], allNames.get(ParameterNamesNotFoundException.class.getMethod("getCause")));
+    }
+
+    public static class Overloads {
+        public static final String __PARANAMER_DATA = "v1.0 \n"
+              + "com.thoughtworks.paranamer.DefaultParanamerTestCase$Overloads <init> int[][] counts \n"
+              + "com.thoughtworks.paranamer.DefaultParanamerTestCase$Overloads getFoo java.lang.String name \n"
+              + "foo java.lang.String,long first,second \n"
+              + "foo java.lang.String text \n"
+              + "foo java.lang.String ignored \n";
+        public Overloads(int[][] counts) {
+        }
+        public void foo(String text) {
+        }
+        public void foo(String first, long second) {
+        }
+        public void foo(Object notInTheData) {
+        }
+        public void getFoo(String name) {
+        }
+    }
+
+    @Test
+    public void testOverloadsAreToldApartByTheirParameterTypes() throws NoSuchMethodException {
+        assertArrayEquals(new String[]{"counts"}, paranamer.lookupParameterNames(Overloads.class.getConstructor(int[][].class)));
+        assertArrayEquals(new String[]{"text"}, paranamer.lookupParameterNames(Overloads.class.getMethod("foo", String.class)));
+        assertArrayEquals(new String[]{"first", "second"}, paranamer.lookupParameterNames(Overloads.class.getMethod("foo", String.class, long.class)));
+        assertArrayEquals(new String[]{"name"}, paranamer.lookupParameterNames(Overloads.class.getMethod("getFoo", String.class)));
+        assertArrayEquals(new String[0], paranamer.lookupParameterNames(Overloads.class.getMethod("foo", Object.class), false));
+    }
+
+    @Test(expected = ParameterNamesNotFoundException.class)
+    public void testMethodsNotInTheDataAreNotFound() throws NoSuchMethodException {
+        paranamer.lookupParameterNames(Overloads.class.getMethod("foo", Object.class));
+    }
+
+    @Test
+    public void testClassesWithoutDataAreKnownToHaveNone() throws NoSuchMethodException {
+        LegacyParanamer legacy = new LegacyParanamer();
+        assertTrue(legacy.hasParameterData(Overloads.class));
+        assertFalse(legacy.hasParameterData(Object.class));
+        assertFalse(legacy.hasParameterData(DefaultParanamerTestCase.class));
+        assertArrayEquals(new String[0], legacy.lookupParameterNames(Object.class.getMethod("equals", Object.class), false));
+    }
+
+    public static class Compact {
+        // strings: foo, java.lang.String, text, long, first, second
+        // methods: foo(String text), foo(String first, long second)
+        public static final String __PARANAMER_DATA = "v2.0\n"
+              + "'$foo1java.lang.String%text%long&first'second"
+              + "#!\"\"#!#\"$%&";
+        public void foo(String text) {
+        }
+        public void foo(String first, long second) {
+        }
+    }
+
+    public static class Split {
+        public static final String __PARANAMER_DATA = "v1.0 \nfoo java.lang.String,long fi";
+        public static final String __PARANAMER_DATA_1 = "rst,sec";
+        public static final String __PARANAMER_DATA_2 = "ond \n";
+        public void foo(String first, long second) {
+        }
+    }
+
+    @Test
+    public void testCompactDataIsDecoded() throws NoSuchMethodException {
+        assertArrayEquals(new String[]{"text"}, paranamer.lookupParameterNames(Compact.class.getMethod("foo", String.class)));
+        assertArrayEquals(new String[]{"first", "second"}, paranamer.lookupParameterNames(Compact.class.getMethod("foo", String.class, long.class)));
+    }
+
+    @Test
+    public void testDataSplitAcrossConstantsIsJoined() throws NoSuchMethodException {
+        assertArrayEquals(new String[]{"first", "second"}, paranamer.lookupParameterNames(Split.class.getMethod("foo", String.class, long.class)));
+    }
+
 }
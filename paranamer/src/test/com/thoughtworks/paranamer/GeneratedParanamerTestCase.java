@@ -0,0 +1,108 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.thoughtworks.paranamer;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class GeneratedParanamerTestCase {
+
+    private static final String SUBJECT = "com.thoughtworks.paranamer.GeneratedParanamerTestCase$Subject";
+
+    @Test
+    public void namesAreAnsweredFromWhatWasAdded() throws Exception {
+        Generated generated = new Generated();
+        assertArrayEquals(new String[] {"counts"}, generated.lookupParameterNames(Subject.class.getConstructor(int[].class)));
+        assertArrayEquals(new String[] {"text"}, generated.lookupParameterNames(Subject.class.getMethod("foo", String.class)));
+        assertArrayEquals(new String[] {"first", "second"}, generated.lookupParameterNames(Subject.class.getMethod("foo", String.class, long.class)));
+        assertEquals(0, generated.lookupParameterNames(Subject.class.getMethod("bar")).length);
+        assertTrue(generated.hasParameterNames(SUBJECT));
+        assertFalse(generated.hasParameterNames("java.lang.Object"));
+    }
+
+    @Test
+    public void missesThrowIfAskedTo() throws Exception {
+        Generated generated = new Generated();
+        assertEquals(0, generated.lookupParameterNames(Subject.class.getMethod("baz", Object.class), false).length);
+        try {
+            generated.lookupParameterNames(Subject.class.getMethod("baz", Object.class));
+            fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void generatedParanamersAreFoundAsServices() throws Exception {
+        ServiceLoaderParanamer paranamer = new ServiceLoaderParanamer();
+        assertArrayEquals(new String[] {"first", "second"}, paranamer.lookupParameterNames(Subject.class.getMethod("foo", String.class, long.class)));
+        assertEquals(0, paranamer.lookupParameterNames(String.class.getMethod("indexOf", String.class), false).length);
+        try {
+            paranamer.lookupParameterNames(Subject.class.getMethod("baz", Object.class));
+            fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            // expected
+        }
+    }
+
+    /**
+     * As the paranamer-maven-plugin generates them, and registered in META-INF/services.
+     */
+    public static class Generated extends GeneratedParanamer {
+        public Generated() {
+            add(SUBJECT, "<init>", new String[] {"int[]"}, new String[] {"counts"});
+            add(SUBJECT, "foo", new String[] {"java.lang.String"}, new String[] {"text"});
+            add(SUBJECT, "foo", new String[] {"java.lang.String", "long"}, new String[] {"first", "second"});
+        }
+    }
+
+    public static class Subject {
+        public Subject(int[] counts) {
+        }
+
+        public void foo(String text) {
+        }
+
+        public void foo(String first, long second) {
+        }
+
+        public void bar() {
+        }
+
+        public void baz(Object notAdded) {
+        }
+    }
+}
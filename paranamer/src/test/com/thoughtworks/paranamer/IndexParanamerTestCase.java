@@ -0,0 +1,225 @@
+/***
+ *
+ * Copyright (c) 2007 Paul Hammant
+ * All rights reserved.
+ *
+ * Redistribution and use in source and binary forms, with or without
+ * modification, are permitted provided that the following conditions
+ * are met:
+ * 1. Redistributions of source code must retain the above copyright
+ *    notice, this list of conditions and the following disclaimer.
+ * 2. Redistributions in binary form must reproduce the above copyright
+ *    notice, this list of conditions and the following disclaimer in the
+ *    documentation and/or other materials provided with the distribution.
+ * 3. Neither the name of the copyright holders nor the names of its
+ *    contributors may be used to endorse or promote products derived from
+ *    this software without specific prior written permission.
+ *
+ * THIS SOFTWARE IS PROVIDED BY THE COPYRIGHT HOLDERS AND CONTRIBUTORS "AS IS"
+ * AND ANY EXPRESS OR IMPLIED WARRANTIES, INCLUDING, BUT NOT LIMITED TO, THE
+ * IMPLIED WARRANTIES OF MERCHANTABILITY AND FITNESS FOR A PARTICULAR PURPOSE
+ * ARE DISCLAIMED. IN NO EVENT SHALL THE COPYRIGHT OWNER OR CONTRIBUTORS BE
+ * LIABLE FOR ANY DIRECT, INDIRECT, INCIDENTAL, SPECIAL, EXEMPLARY, OR
+ * CONSEQUENTIAL DAMAGES (INCLUDING, BUT NOT LIMITED TO, PROCUREMENT OF
+ * SUBSTITUTE GOODS OR SERVICES; LOSS OF USE, DATA, OR PROFITS; OR BUSINESS
+ * INTERRUPTION) HOWEVER CAUSED AND ON ANY THEORY OF LIABILITY, WHETHER IN
+ * CONTRACT, STRICT LIABILITY, OR TORT (INCLUDING NEGLIGENCE OR OTHERWISE)
+ * ARISING IN ANY WAY OUT OF THE USE OF THIS SOFTWARE, EVEN IF ADVISED OF
+ * THE POSSIBILITY OF SUCH DAMAGE.
+ */
+
+package com.thoughtworks.paranamer;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class IndexParanamerTestCase {
+
+    private static final String INDEXED = "com.thoughtworks.paranamer.IndexParanamerTestCase$Indexed";
+
+    private final List<URL> resources = new ArrayList<URL>();
+    private final List<ByteBuffer> read = new ArrayList<ByteBuffer>();
+    private int searches;
+
+    private final IndexParanamer paranamer = new IndexParanamer() {
+        @Override
+        protected Enumeration<URL> findIndexResources(ClassLoader loader) {
+            searches++;
+            return Collections.enumeration(resources);
+        }
+
+        @Override
+        protected ByteBuffer readIndex(URL url) throws IOException {
+            ByteBuffer index = super.readIndex(url);
+            read.add(index);
+            return index;
+        }
+    };
+
+    private File directory;
+
+    @Before
+    public void setUp() throws Exception {
+        directory = File.createTempFile("index", "");
+        directory.delete();
+        directory.mkdirs();
+        directory.deleteOnExit();
+    }
+
+    @Test
+    public void namesAreFoundInAMappedIndex() throws Exception {
+        resources.add(writeIndexFile("one.bin",
+                INDEXED + " <init> int[] counts",
+                INDEXED + " foo java.lang.String text",
+                INDEXED + " foo java.lang.String,long first,second"));
+
+        assertArrayEquals(new String[] {"counts"}, paranamer.lookupParameterNames(Indexed.class.getConstructor(int[].class)));
+        assertArrayEquals(new String[] {"text"}, paranamer.lookupParameterNames(Indexed.class.getMethod("foo", String.class)));
+        assertArrayEquals(new String[] {"first", "second"}, paranamer.lookupParameterNames(Indexed.class.getMethod("foo", String.class, long.class)));
+        assertEquals(0, paranamer.lookupParameterNames(Indexed.class.getMethod("bar")).length);
+        assertTrue(read.get(0) instanceof MappedByteBuffer);
+        assertEquals(1, searches);
+    }
+
+    @Test
+    public void namesAreFoundInAnIndexInAJar() throws Exception {
+        File jar = new File(directory, "indexed.jar");
+        JarOutputStream jos = new JarOutputStream(new FileOutputStream(jar));
+        jos.putNextEntry(new JarEntry(IndexParanamer.INDEX_RESOURCE));
+        jos.write(index(INDEXED + " foo java.lang.String text"));
+        jos.closeEntry();
+        jos.close();
+        resources.add(new URL("jar:" + jar.toURI().toURL() + "!/" + IndexParanamer.INDEX_RESOURCE));
+
+        assertArrayEquals(new String[] {"text"}, paranamer.lookupParameterNames(Indexed.class.getMethod("foo", String.class)));
+    }
+
+    @Test
+    public void everyIndexIsSearched() throws Exception {
+        resources.add(writeIndexFile("one.bin", "some.Other foo java.lang.String text"));
+        resources.add(writeIndexFile("two.bin", INDEXED + " foo java.lang.String,long first,second"));
+
+        assertArrayEquals(new String[] {"first", "second"}, paranamer.lookupParameterNames(Indexed.class.getMethod("foo", String.class, long.class)));
+    }
+
+    @Test
+    public void missesThrowIfAskedTo() throws Exception {
+        resources.add(writeIndexFile("one.bin", INDEXED + " foo java.lang.String text"));
+
+        assertEquals(0, paranamer.lookupParameterNames(Indexed.class.getMethod("foo", String.class, long.class), false).length);
+        try {
+            paranamer.lookupParameterNames(Indexed.class.getMethod("foo", String.class, long.class));
+            fail("should have barfed");
+        } catch (ParameterNamesNotFoundException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void resourcesThatAreNotIndexesAreIgnored() throws Exception {
+        File notAnIndex = new File(directory, "not.bin");
+        FileOutputStream fos = new FileOutputStream(notAnIndex);
+        fos.write("not an index".getBytes(StandardCharsets.UTF_8));
+        fos.close();
+        resources.add(notAnIndex.toURI().toURL());
+
+        assertEquals(0, paranamer.lookupParameterNames(Indexed.class.getMethod("foo", String.class), false).length);
+    }
+
+    @Test
+    public void whatIsCutOffATruncatedIndexIsTakenAsMissing() throws Exception {
+        byte[] index = index(
+                INDEXED + " foo java.lang.String text",
+                INDEXED + " foo java.lang.String,long first,second");
+        resources.add(writeIndexFile("truncated.bin", Arrays.copyOf(index, index.length - 3)));
+
+        assertArrayEquals(new String[] {"text"}, paranamer.lookupParameterNames(Indexed.class.getMethod("foo", String.class)));
+        assertEquals(0, paranamer.lookupParameterNames(Indexed.class.getMethod("foo", String.class, long.class), false).length);
+    }
+
+    @Test
+    public void indexesWithMoreKeysThanTheyHaveRoomForAreIgnored() throws Exception {
+        byte[] index = index(INDEXED + " foo java.lang.String text");
+        ByteBuffer.wrap(index).putInt(8, 1000);
+        resources.add(writeIndexFile("corrupt.bin", index));
+
+        assertEquals(0, paranamer.lookupParameterNames(Indexed.class.getMethod("foo", String.class), false).length);
+    }
+
+    private URL writeIndexFile(String name, String... lines) throws IOException {
+        return writeIndexFile(name, index(lines));
+    }
+
+    private URL writeIndexFile(String name, byte[] index) throws IOException {
+        File file = new File(directory, name);
+        file.deleteOnExit();
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(index);
+        fos.close();
+        return file.toURI().toURL();
+    }
+
+    /**
+     * As QdoxParanamerGenerator.writeIndex writes it, from "className methodName types names" lines,
+     * which have to be in order.
+     */
+    private static byte[] index(String... lines) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream data = new DataOutputStream(bytes);
+        data.writeInt(0x504E4958);
+        data.writeInt(1);
+        data.writeInt(lines.length);
+        int offset = 12 + 4 * lines.length;
+        List<byte[][]> entries = new ArrayList<byte[][]>();
+        for (String line : lines) {
+            int split = line.lastIndexOf(' ');
+            byte[][] entry = {line.substring(0, split).getBytes(StandardCharsets.UTF_8), line.substring(split + 1).getBytes(StandardCharsets.UTF_8)};
+            entries.add(entry);
+            data.writeInt(offset);
+            offset += 4 + entry[0].length + entry[1].length;
+        }
+        for (byte[][] entry : entries) {
+            data.writeShort(entry[0].length);
+            data.write(entry[0]);
+            data.writeShort(entry[1].length);
+            data.write(entry[1]);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static class Indexed {
+        public Indexed(int[] counts) {
+        }
+
+        public void foo(String text) {
+        }
+
+        public void foo(String first, long second) {
+        }
+
+        public void bar() {
+        }
+    }
+}
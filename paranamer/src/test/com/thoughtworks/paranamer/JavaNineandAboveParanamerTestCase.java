@@ -30,6 +30,10 @@
 
 package com.thoughtworks.paranamer;
 
+import java.lang.reflect.AccessibleObject;
+import java.lang.reflect.Field;
+import java.util.Map;
+
 import org.junit.Before;
 import org.junit.Test;
 
@@ -48,9 +52,15 @@ public class JavaNineandAboveParanamerTestCase extends AbstractParanamerTestCase
 
     @Test
     public void testRetrievesParameterNamesFromAMethod() throws SecurityException, NoSuchMethodException {
-        String arg0 = paranamer.lookupParameterNames(LegacyParanamer.class.getDeclaredMethod("findFirstMatchingLine", String.class, String.class))[0];
-        assertEquals("data", arg0);
+        String arg0 = paranamer.lookupParameterNames(LegacyParanamer.class.getDeclaredMethod("getStaticString", Field[].class, String.class))[0];
+        assertEquals("fields", arg0);
     }
 
+    @Test
+    public void testLookupAllParameterNames() throws NoSuchMethodException {
+        Map<AccessibleObject, String[]> allNames = paranamer.lookupAllParameterNames(LegacyParanamer.class);
+        assertEquals("fields", allNames.get(LegacyParanamer.class.getDeclaredMethod("getStaticString", Field[].class, String.class))[0]);
+        assertEquals(0, allNames.get(LegacyParanamer.class.getConstructor()).length);
+    }
 
-}
\ No newline at end of file
+}